@@ -0,0 +1,61 @@
+package com.hokolinks.benchmarks;
+
+import com.hokolinks.model.Deeplink;
+
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures building the deeplink URL of a Deeplink, which happens on every Smartlink generation
+ * and on every lazy Smartlink, with an increasing number of route and query parameters.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DeeplinkURLBenchmark {
+
+    @Param({"1", "10", "50"})
+    public int parameterCount;
+
+    private Deeplink mDeeplink;
+
+    @Setup
+    public void setUp() {
+        StringBuilder route = new StringBuilder("store");
+        HashMap<String, String> routeParameters = new HashMap<>();
+        HashMap<String, String> queryParameters = new HashMap<>();
+        for (int index = 0; index < parameterCount; index++) {
+            route.append("/section").append(index).append("/:param").append(index);
+            routeParameters.put("param" + index, "value " + index);
+            queryParameters.put("query" + index, "some value & " + index);
+        }
+        mDeeplink = Deeplink.deeplink(route.toString(), routeParameters, queryParameters);
+    }
+
+    @Benchmark
+    public String getURL() {
+        return mDeeplink.getURL();
+    }
+
+    @Benchmark
+    public JSONObject json() {
+        return mDeeplink.json();
+    }
+
+}
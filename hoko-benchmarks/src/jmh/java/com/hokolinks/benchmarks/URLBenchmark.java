@@ -0,0 +1,57 @@
+package com.hokolinks.benchmarks;
+
+import com.hokolinks.model.URL;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures parsing an inbound deeplink into a URL, which happens on every deeplink open, and
+ * the sanitization of URLs and routes, with an increasing number of query parameters.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class URLBenchmark {
+
+    @Param({"1", "10", "50"})
+    public int queryParameterCount;
+
+    private String mURLString;
+
+    @Setup
+    public void setUp() {
+        StringBuilder urlString = new StringBuilder("hoko://store//en/product/1234/?");
+        for (int index = 0; index < queryParameterCount; index++) {
+            if (index > 0)
+                urlString.append('&');
+            urlString.append("query").append(index).append("=some+value%26").append(index);
+        }
+        mURLString = urlString.toString();
+    }
+
+    @Benchmark
+    public URL construct() {
+        return new URL(mURLString);
+    }
+
+    @Benchmark
+    public String sanitizeURL() {
+        return URL.sanitizeURL(mURLString);
+    }
+
+}
@@ -0,0 +1,112 @@
+package com.hokolinks.deeplinking;
+
+import android.os.Bundle;
+
+import com.hokolinks.deeplinking.annotations.DeeplinkMetadata;
+import com.hokolinks.deeplinking.annotations.DeeplinkQueryParameter;
+import com.hokolinks.deeplinking.annotations.DeeplinkRouteParameter;
+import com.hokolinks.model.Deeplink;
+import com.hokolinks.model.DeeplinkParcel;
+import com.hokolinks.model.IntentRouteImpl;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures injecting the route parameters, query parameters and metadata of a deeplink on to
+ * the annotated fields of an object, both from a DeeplinkParcel and from the nested Bundles used
+ * by previous versions of the SDK.
+ * Lives in the deeplinking package to reach the package-private AnnotationParser internals.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InjectionBenchmark {
+
+    private static final String ROUTE = "store/:language_code/product/:product_id";
+
+    /**
+     * Stands in for an annotated activity or fragment.
+     */
+    public static class ProductTarget {
+
+        @DeeplinkRouteParameter("language_code")
+        String mLanguageCode;
+
+        @DeeplinkRouteParameter("product_id")
+        int mProductId;
+
+        @DeeplinkQueryParameter("utm_source")
+        String mSource;
+
+        @DeeplinkQueryParameter("quantity")
+        Integer mQuantity;
+
+        @DeeplinkMetadata
+        JSONObject mMetadata;
+
+    }
+
+    private IntentRouteImpl mIntentRoute;
+    private DeeplinkParcel mDeeplinkParcel;
+    private Bundle mRouteParametersBundle;
+    private Bundle mQueryParametersBundle;
+    private String mMetadataString;
+
+    @Setup
+    public void setUp() throws JSONException {
+        mIntentRoute = new IntentRouteImpl(ROUTE, ProductTarget.class.getName(), null);
+        AnnotationParser.resolveRoute(mIntentRoute);
+
+        HashMap<String, String> routeParameters = new HashMap<>();
+        routeParameters.put("language_code", "en");
+        routeParameters.put("product_id", "1234");
+        HashMap<String, String> queryParameters = new HashMap<>();
+        queryParameters.put("utm_source", "newsletter");
+        queryParameters.put("quantity", "2");
+        JSONObject metadata = new JSONObject().put("coupon", "HOKO20").put("discount", 20);
+
+        mDeeplinkParcel = new DeeplinkParcel(ROUTE,
+                Deeplink.deeplink(ROUTE, routeParameters, queryParameters, metadata));
+
+        mRouteParametersBundle = new Bundle();
+        for (String key : routeParameters.keySet())
+            mRouteParametersBundle.putString(key, routeParameters.get(key));
+        mQueryParametersBundle = new Bundle();
+        for (String key : queryParameters.keySet())
+            mQueryParametersBundle.putString(key, queryParameters.get(key));
+        mMetadataString = metadata.toString();
+    }
+
+    @Benchmark
+    public ProductTarget injectDeeplinkParcel() {
+        ProductTarget target = new ProductTarget();
+        AnnotationParser.inject(target, mDeeplinkParcel, mIntentRoute);
+        return target;
+    }
+
+    @Benchmark
+    public ProductTarget injectLegacyBundles() {
+        ProductTarget target = new ProductTarget();
+        AnnotationParser.inject(target, DeeplinkParcel.fromBundles(ROUTE, mRouteParametersBundle,
+                mQueryParametersBundle, mMetadataString), mIntentRoute);
+        return target;
+    }
+
+}
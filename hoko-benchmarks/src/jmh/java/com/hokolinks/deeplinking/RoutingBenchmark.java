@@ -0,0 +1,137 @@
+package com.hokolinks.deeplinking;
+
+import com.hokolinks.model.Deeplink;
+import com.hokolinks.model.DeeplinkCallback;
+import com.hokolinks.model.Route;
+import com.hokolinks.model.URL;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures matching and opening an inbound deeplink against the mapped routes and sorting the
+ * routes, which happens every time a route is mapped, with an increasing number of mapped routes.
+ * sortRoutes and its baseline shuffle a copy of the routes, leaving the ones published by the
+ * Routing untouched.
+ * Lives in the deeplinking package to reach the package-private Routing internals.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RoutingBenchmark {
+
+    private static final DeeplinkCallback CALLBACK = new DeeplinkCallback() {
+        @Override
+        public void deeplinkOpened(Deeplink deeplink) {
+        }
+    };
+
+    @Param({"10", "100", "1000"})
+    public int routeCount;
+
+    private Routing mRouting;
+    private List<Route> mRoutes;
+    private Random mRandom;
+    private URL mFirstURL;
+    private URL mLastURL;
+    private String mLastURLString;
+    private URL mMissingURL;
+
+    @Setup
+    public void setUp() {
+        mRouting = new Routing(null, null, new Handling(), new Filtering());
+        mRouting.setDispatchExecutor(new Executor() {
+            @Override
+            public void execute(Runnable runnable) {
+                runnable.run();
+            }
+        });
+        for (int index = 0; index < routeCount; index++) {
+            mRouting.mapRoute(pathForIndex(index, ":id"), CALLBACK);
+        }
+        mRoutes = mRouting.getRoutes();
+        mRandom = new Random(42);
+        mFirstURL = new URL("hoko://" + pathForIndex(0, "42"));
+        mLastURLString = "hoko://" + pathForIndex(routeCount - 1, "42");
+        mLastURL = new URL(mLastURLString);
+        mMissingURL = new URL("hoko://missing/item/42/detail");
+    }
+
+    /**
+     * Builds routes and paths with one, two or four components, so that routes of different lengths
+     * are spread through the routes list.
+     *
+     * @param index The route's index.
+     * @param id    The value of the id component.
+     * @return The route or the path.
+     */
+    private static String pathForIndex(int index, String id) {
+        switch (index % 3) {
+            case 0:
+                return "section" + index;
+            case 1:
+                return "section" + index + "/" + id;
+            default:
+                return "section" + index + "/item/" + id + "/detail";
+        }
+    }
+
+    @Benchmark
+    public Route routeForURLFirst() {
+        return mRouting.routeForURL(mFirstURL);
+    }
+
+    @Benchmark
+    public Route routeForURLLast() {
+        return mRouting.routeForURL(mLastURL);
+    }
+
+    /**
+     * Opens a deeplink matching the last route, from parsing the URL to calling the route's
+     * callback, which matches the URL against the routes only once.
+     */
+    @Benchmark
+    public boolean openURLLast() {
+        return mRouting.openURL(mLastURLString, null, false);
+    }
+
+    @Benchmark
+    public Route routeForURLMissing() {
+        return mRouting.routeForURL(mMissingURL);
+    }
+
+    /**
+     * Baseline for sortRoutes, which has to shuffle the routes on every invocation.
+     */
+    @Benchmark
+    public List<Route> shuffleRoutes() {
+        Collections.shuffle(mRoutes, mRandom);
+        return mRoutes;
+    }
+
+    @Benchmark
+    public List<Route> sortRoutes() {
+        Collections.shuffle(mRoutes, mRandom);
+        Routing.sortRoutes(mRoutes);
+        return mRoutes;
+    }
+
+}
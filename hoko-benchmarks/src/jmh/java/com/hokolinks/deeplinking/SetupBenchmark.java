@@ -0,0 +1,177 @@
+package com.hokolinks.deeplinking;
+
+import com.hokolinks.deeplinking.annotations.DeeplinkDefaultRoute;
+import com.hokolinks.deeplinking.annotations.DeeplinkFragmentActivity;
+import com.hokolinks.deeplinking.annotations.DeeplinkMetadata;
+import com.hokolinks.deeplinking.annotations.DeeplinkMultipleRoute;
+import com.hokolinks.deeplinking.annotations.DeeplinkQueryParameter;
+import com.hokolinks.deeplinking.annotations.DeeplinkRoute;
+import com.hokolinks.deeplinking.annotations.DeeplinkRouteParameter;
+
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the part of Hoko.setup(...) which discovers the annotated activities, mapping the
+ * routes of a set of synthetic activity classes, their fragments and the default route into a
+ * new Deeplinking instance, as well as the sorting which happens as each route is mapped.
+ * The activity list includes classes without annotations, as every activity of the
+ * AndroidManifest.xml is parsed. The Deeplinking instances are built outside debug mode and share
+ * one LinkGenerator, so neither the posting of routes nor the creation of the prefetch executor
+ * is measured.
+ * Lives in the deeplinking package to reach the package-private AnnotationParser internals.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SetupBenchmark {
+
+    @DeeplinkDefaultRoute
+    public static class HomeActivity {
+
+        @DeeplinkQueryParameter("utm_source")
+        String mSource;
+
+    }
+
+    @DeeplinkRoute("product/:product_id")
+    public static class ProductActivity {
+
+        @DeeplinkRouteParameter("product_id")
+        int mProductId;
+
+        @DeeplinkQueryParameter("utm_source")
+        String mSource;
+
+        @DeeplinkMetadata
+        JSONObject mMetadata;
+
+    }
+
+    @DeeplinkMultipleRoute(routes = {"store/:store_id", "store/:store_id/map",
+            "store/:store_id/hours"})
+    public static class StoreActivity {
+
+        @DeeplinkRouteParameter("store_id")
+        long mStoreId;
+
+    }
+
+    @DeeplinkRoute("category/:category_id{int}/page/:page?")
+    public static class CategoryActivity {
+
+        @DeeplinkRouteParameter("category_id")
+        int mCategoryId;
+
+        @DeeplinkRouteParameter("page")
+        Integer mPage;
+
+        @DeeplinkQueryParameter("sort")
+        String mSort;
+
+    }
+
+    @DeeplinkRoute("help/*topic")
+    public static class HelpActivity {
+
+        @DeeplinkRouteParameter("topic")
+        String mTopic;
+
+    }
+
+    @DeeplinkRoute("cart")
+    public static class CartActivity {
+
+        @DeeplinkQueryParameter("coupon")
+        String mCoupon;
+
+    }
+
+    @DeeplinkFragmentActivity(fragments = {ProfileFragment.class, OrdersFragment.class,
+            OrderFragment.class})
+    public static class AccountActivity {
+    }
+
+    @DeeplinkRoute("account/profile")
+    public static class ProfileFragment {
+    }
+
+    @DeeplinkRoute("account/orders")
+    public static class OrdersFragment {
+
+        @DeeplinkQueryParameter("status")
+        String mStatus;
+
+    }
+
+    @DeeplinkRoute("account/orders/:order_id")
+    public static class OrderFragment {
+
+        @DeeplinkRouteParameter("order_id")
+        String mOrderId;
+
+    }
+
+    @DeeplinkRoute("https://example.com/product/:product_id")
+    public static class WebProductActivity {
+
+        @DeeplinkRouteParameter("product_id")
+        int mProductId;
+
+    }
+
+    public static class SplashActivity {
+    }
+
+    public static class SettingsActivity {
+
+        String mTheme;
+
+    }
+
+    private List<String> mActivities;
+    private LinkGenerator mLinkGenerator;
+
+    @Setup
+    public void setUp() {
+        mActivities = new ArrayList<>();
+        for (Class activityClass : Arrays.asList(SplashActivity.class, HomeActivity.class,
+                ProductActivity.class, StoreActivity.class, CategoryActivity.class,
+                HelpActivity.class, CartActivity.class, AccountActivity.class,
+                WebProductActivity.class, SettingsActivity.class)) {
+            mActivities.add(activityClass.getName());
+        }
+        mLinkGenerator = new LinkGenerator(null, new Executor() {
+            @Override
+            public void execute(Runnable runnable) {
+                runnable.run();
+            }
+        });
+    }
+
+    @Benchmark
+    public Deeplinking parseActivities() {
+        Deeplinking deeplinking = new Deeplinking(null, null, false, mLinkGenerator);
+        AnnotationParser.parseClasses(deeplinking, mActivities);
+        return deeplinking;
+    }
+
+}
@@ -0,0 +1,36 @@
+package android.os;
+
+import java.util.HashMap;
+import java.util.Set;
+
+/**
+ * Plain Java stand-in for Android's Bundle, backed by a HashMap, covering the String and Bundle
+ * values HOKO puts on its intents.
+ */
+public final class Bundle {
+
+    private final HashMap<String, Object> mMap = new HashMap<>();
+
+    public void putString(String key, String value) {
+        mMap.put(key, value);
+    }
+
+    public String getString(String key) {
+        Object value = mMap.get(key);
+        return value instanceof String ? (String) value : null;
+    }
+
+    public void putBundle(String key, Bundle value) {
+        mMap.put(key, value);
+    }
+
+    public Bundle getBundle(String key) {
+        Object value = mMap.get(key);
+        return value instanceof Bundle ? (Bundle) value : null;
+    }
+
+    public Set<String> keySet() {
+        return mMap.keySet();
+    }
+
+}
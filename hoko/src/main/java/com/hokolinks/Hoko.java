@@ -4,11 +4,16 @@ import android.content.Context;
 
 import com.hokolinks.deeplinking.AnnotationParser;
 import com.hokolinks.deeplinking.Deeplinking;
-import com.hokolinks.model.App;
+import com.hokolinks.model.ClientInfo;
+import com.hokolinks.model.Device;
 import com.hokolinks.model.exceptions.SetupCalledMoreThanOnceException;
 import com.hokolinks.model.exceptions.SetupNotCalledYetException;
 import com.hokolinks.utils.log.HokoLog;
+import com.hokolinks.utils.metrics.Metrics;
+import com.hokolinks.utils.metrics.MetricsListener;
 import com.hokolinks.utils.networking.Networking;
+import com.hokolinks.utils.networking.NetworkingStats;
+import com.hokolinks.utils.networking.NetworkingStatsListener;
 import com.hokolinks.utils.versionchecker.VersionChecker;
 
 /**
@@ -41,9 +46,14 @@ public class Hoko {
     private Hoko(Context context, String token, boolean debugMode) {
         mDebugMode = debugMode;
         mToken = token;
+        Device.warmUpDeviceID(context);
+        long networkingStart = Metrics.beginSection("Hoko.setupNetworking");
         Networking.setupNetworking(context);
+        Metrics.endSection(Metrics.Stage.SETUP_NETWORKING, null, networkingStart);
 
-        mDeeplinking = new Deeplinking(token, context);
+        long deeplinkingStart = Metrics.beginSection("Hoko.Deeplinking");
+        mDeeplinking = new Deeplinking(token, context, debugMode);
+        Metrics.endSection(Metrics.Stage.SETUP_DEEPLINKING, null, deeplinkingStart);
     }
 
     // Setup
@@ -63,7 +73,7 @@ public class Hoko {
      * @param token     Hoko service API key.
      */
     public static void setup(Context context, String token) {
-        setup(context, token, App.isDebug(context));
+        setup(context, token, ClientInfo.get(context).isDebug());
     }
 
     /**
@@ -83,9 +93,13 @@ public class Hoko {
      */
     public static void setup(Context context, String token, boolean debugMode) {
         if (sInstance == null) {
+            long setupStart = Metrics.beginSection("Hoko.setup");
             sInstance = new Hoko(context, token, debugMode);
+            long versionCheckStart = Metrics.beginSection("Hoko.checkVersions");
             sInstance.checkVersions();
+            Metrics.endSection(Metrics.Stage.SETUP_VERSION_CHECK, null, versionCheckStart);
             AnnotationParser.parseActivities(context);
+            Metrics.endSection(Metrics.Stage.SETUP, null, setupStart);
 
         } else {
             HokoLog.e(new SetupCalledMoreThanOnceException());
@@ -122,6 +136,91 @@ public class Hoko {
         HokoLog.setVerbose(verbose);
     }
 
+    // Metrics
+
+    /**
+     * Use this function to receive the duration of each stage of opening a deeplink (resolving,
+     * route matching, metadata, filters, handlers and execution), as well as queue waits and
+     * network round trips, in order to export them to your own telemetry.
+     * Set it before calling setup(...) to also receive the duration of each setup phase (e.g.
+     * loading the networking queue, discovering the annotated activities and mapping each one).
+     * Timings are only taken while a listener is set.
+     * <pre>{@code
+     * Hoko.setMetricsListener(new MetricsListener() {
+     *     public void onTiming(Metrics.Stage stage, String name, long durationNanos) {
+     *         // Export the timing
+     *     }
+     * });
+     * }</pre>
+     *
+     * @param metricsListener A MetricsListener object or null to stop timing.
+     */
+    public static void setMetricsListener(MetricsListener metricsListener) {
+        Metrics.setListener(metricsListener);
+    }
+
+    /**
+     * Returns a snapshot of the queue of requests waiting to be sent to the HOKO backend, of its
+     * persistence and of the outcome of the requests sent so far.
+     *
+     * @return A NetworkingStats object or null in case setup was not called yet.
+     */
+    public static NetworkingStats getNetworkingStats() {
+        Networking networking = Networking.getNetworking();
+        return networking != null ? networking.getStats() : null;
+    }
+
+    /**
+     * Use this function to periodically receive a snapshot of the queue of requests waiting to be
+     * sent to the HOKO backend, e.g. to alert when requests pile up on a device.
+     *
+     * @param networkingStatsListener A NetworkingStatsListener object or null to stop.
+     * @param intervalMillis          The interval between snapshots in milliseconds.
+     */
+    public static void setNetworkingStatsListener(NetworkingStatsListener networkingStatsListener,
+                                                  long intervalMillis) {
+        Networking networking = Networking.getNetworking();
+        if (networking == null) {
+            HokoLog.e(new SetupNotCalledYetException());
+            return;
+        }
+        networking.setStatsListener(networkingStatsListener, intervalMillis);
+    }
+
+    /**
+     * Limits the number of requests waiting to be sent to the HOKO backend while the device is
+     * offline, which defaults to 500. Install attribution and smartlink opens have a higher
+     * priority than the routes posted in debug mode, being sent first and dropped last.
+     *
+     * @param capacity       The maximum number of queued requests.
+     * @param overflowPolicy What to drop once the queue is full.
+     */
+    public static void setNetworkingCapacity(int capacity,
+                                             Networking.OverflowPolicy overflowPolicy) {
+        Networking networking = Networking.getNetworking();
+        if (networking == null) {
+            HokoLog.e(new SetupNotCalledYetException());
+            return;
+        }
+        networking.setCapacity(capacity, overflowPolicy);
+    }
+
+    /**
+     * Use this function to let the JobScheduler send the requests waiting for connectivity once
+     * the device is back online, after the application went to background. Only available on
+     * Lollipop and above, disabled by default.
+     *
+     * @param backgroundScheduling true to schedule a job on background, false otherwise.
+     */
+    public static void setNetworkingBackgroundScheduling(boolean backgroundScheduling) {
+        Networking networking = Networking.getNetworking();
+        if (networking == null) {
+            HokoLog.e(new SetupNotCalledYetException());
+            return;
+        }
+        networking.setBackgroundScheduling(backgroundScheduling);
+    }
+
     // Debug
 
     /**
@@ -3,6 +3,7 @@ package com.hokolinks.deeplinking;
 import android.annotation.TargetApi;
 import android.app.Activity;
 import android.content.Context;
+import android.content.Intent;
 import android.content.pm.ActivityInfo;
 import android.content.pm.PackageManager;
 import android.os.Bundle;
@@ -19,10 +20,14 @@ import com.hokolinks.deeplinking.annotations.DeeplinkQueryParameter;
 import com.hokolinks.deeplinking.annotations.DeeplinkRoute;
 import com.hokolinks.deeplinking.annotations.DeeplinkRouteParameter;
 import com.hokolinks.model.Deeplink;
+import com.hokolinks.model.DeeplinkParcel;
 import com.hokolinks.model.IntentRouteImpl;
 import com.hokolinks.model.Route;
+import com.hokolinks.model.URL;
 import com.hokolinks.model.exceptions.ActivityNotDeeplinkableException;
+import com.hokolinks.model.exceptions.InvalidRouteException;
 import com.hokolinks.utils.log.HokoLog;
+import com.hokolinks.utils.metrics.Metrics;
 
 import org.json.JSONException;
 import org.json.JSONObject;
@@ -39,6 +44,13 @@ import java.util.List;
  */
 public class AnnotationParser {
 
+    // Manifest meta-data keys for lazy route registration. With com.hokolinks.LAZY_ROUTES
+    // enabled, the routes come from the com.hokolinks.ROUTES and com.hokolinks.DEFAULT_ROUTE
+    // meta-data alone, so a route declared only through annotations is not mapped.
+    public static final String LAZY_ROUTES_METADATA_KEY = "com.hokolinks.LAZY_ROUTES";
+    public static final String ROUTES_METADATA_KEY = "com.hokolinks.ROUTES";
+    public static final String DEFAULT_ROUTE_METADATA_KEY = "com.hokolinks.DEFAULT_ROUTE";
+
     // Route link
 
     /**
@@ -178,25 +190,19 @@ public class AnnotationParser {
      * @return true in case it injected values, false otherwise.
      */
     public static boolean inject(Activity activity) {
-        String route = activity.getIntent().getStringExtra(IntentRouteImpl.BUNDLE_KEY);
-        if (route == null)
+        DeeplinkParcel deeplinkParcel = deeplinkParcelFromIntent(activity.getIntent());
+        if (deeplinkParcel == null)
             return false;
 
-        Bundle routeParametersBundle = activity.getIntent()
-                .getBundleExtra(IntentRouteImpl.ROUTE_PARAMETERS_BUNDLE_KEY);
-        Bundle queryParametersBundle = activity.getIntent()
-                .getBundleExtra(IntentRouteImpl.QUERY_PARAMETERS_BUNDLE_KEY);
-        String metadata = activity.getIntent().getStringExtra(IntentRouteImpl.METADATA_KEY);
-
+        String route = deeplinkParcel.getRoute();
         String routeFromClass = routeFromClass(activity.getClass());
         List<String> routesFromClass = routesFromClass(activity.getClass());
         boolean isClassRoute = (routeFromClass != null && routeFromClass.equals(route)) ||
                 (routesFromClass != null && routesFromClass.contains(route));
         if (isClassRoute) { // Activity
-            return inject(activity, route, routeParametersBundle, queryParametersBundle, metadata);
+            return inject(activity, deeplinkParcel);
         } else if (activity instanceof FragmentActivity) {
-            return injectFragment((FragmentActivity) activity, route, routeParametersBundle,
-                    queryParametersBundle, metadata);
+            return injectFragment((FragmentActivity) activity, deeplinkParcel);
         }
         return false;
     }
@@ -210,20 +216,11 @@ public class AnnotationParser {
      * @return true in case it injected values, false otherwise.
      */
     public static boolean inject(Fragment fragment) {
-        if (fragment.getArguments() == null)
+        DeeplinkParcel deeplinkParcel = deeplinkParcelFromArguments(fragment.getArguments());
+        if (deeplinkParcel == null)
             return false;
 
-        String route = fragment.getArguments().getString(IntentRouteImpl.BUNDLE_KEY);
-        if (route == null)
-            return false;
-
-        Bundle routeParametersBundle = fragment.getArguments()
-                .getBundle(IntentRouteImpl.ROUTE_PARAMETERS_BUNDLE_KEY);
-        Bundle queryParametersBundle = fragment.getArguments()
-                .getBundle(IntentRouteImpl.QUERY_PARAMETERS_BUNDLE_KEY);
-        String metadata = fragment.getArguments().getString(IntentRouteImpl.METADATA_KEY);
-
-        return inject(fragment, route, routeParametersBundle, queryParametersBundle, metadata);
+        return inject(fragment, deeplinkParcel);
     }
 
     /**
@@ -236,36 +233,69 @@ public class AnnotationParser {
      */
     @TargetApi(11)
     public static boolean inject(android.app.Fragment fragment) {
-        if (fragment.getArguments() == null)
+        DeeplinkParcel deeplinkParcel = deeplinkParcelFromArguments(fragment.getArguments());
+        if (deeplinkParcel == null)
             return false;
 
-        String route = fragment.getArguments().getString(IntentRouteImpl.BUNDLE_KEY);
-        if (route == null)
-            return false;
+        return inject(fragment, deeplinkParcel);
+    }
 
-        Bundle routeParametersBundle = fragment.getArguments()
-                .getBundle(IntentRouteImpl.ROUTE_PARAMETERS_BUNDLE_KEY);
-        Bundle queryParametersBundle = fragment.getArguments()
-                .getBundle(IntentRouteImpl.QUERY_PARAMETERS_BUNDLE_KEY);
-        String metadata = fragment.getArguments().getString(IntentRouteImpl.METADATA_KEY);
+    /**
+     * Retrieves the DeeplinkParcel from an inbound intent, falling back to the nested Bundles
+     * used by previous versions of the SDK.
+     *
+     * @param intent The inbound intent.
+     * @return A DeeplinkParcel or null in case the intent does not come from a deeplink.
+     */
+    @SuppressWarnings("deprecation")
+    private static DeeplinkParcel deeplinkParcelFromIntent(Intent intent) {
+        if (intent == null)
+            return null;
+
+        intent.setExtrasClassLoader(DeeplinkParcel.class.getClassLoader());
+        DeeplinkParcel deeplinkParcel = intent.getParcelableExtra(IntentRouteImpl.DEEPLINK_KEY);
+        if (deeplinkParcel != null)
+            return deeplinkParcel;
+
+        return DeeplinkParcel.fromBundles(intent.getStringExtra(IntentRouteImpl.BUNDLE_KEY),
+                intent.getBundleExtra(IntentRouteImpl.ROUTE_PARAMETERS_BUNDLE_KEY),
+                intent.getBundleExtra(IntentRouteImpl.QUERY_PARAMETERS_BUNDLE_KEY),
+                intent.getStringExtra(IntentRouteImpl.METADATA_KEY));
+    }
 
-        return inject(fragment, route, routeParametersBundle, queryParametersBundle, metadata);
+    /**
+     * Retrieves the DeeplinkParcel from a fragment's arguments, falling back to the nested
+     * Bundles used by previous versions of the SDK.
+     *
+     * @param arguments The fragment's arguments.
+     * @return A DeeplinkParcel or null in case the arguments do not come from a deeplink.
+     */
+    @SuppressWarnings("deprecation")
+    private static DeeplinkParcel deeplinkParcelFromArguments(Bundle arguments) {
+        if (arguments == null)
+            return null;
+
+        arguments.setClassLoader(DeeplinkParcel.class.getClassLoader());
+        DeeplinkParcel deeplinkParcel = arguments.getParcelable(IntentRouteImpl.DEEPLINK_KEY);
+        if (deeplinkParcel != null)
+            return deeplinkParcel;
+
+        return DeeplinkParcel.fromBundles(arguments.getString(IntentRouteImpl.BUNDLE_KEY),
+                arguments.getBundle(IntentRouteImpl.ROUTE_PARAMETERS_BUNDLE_KEY),
+                arguments.getBundle(IntentRouteImpl.QUERY_PARAMETERS_BUNDLE_KEY),
+                arguments.getString(IntentRouteImpl.METADATA_KEY));
     }
 
     /**
      * Injects a FragmentActivity with a possible deeplinkable fragment, its route parameters and
      * its query parameters.
      *
-     * @param activity              A FragmentActivity object.
-     * @param route                 A route string.
-     * @param routeParametersBundle A bundle containing the route parameters.
-     * @param queryParametersBundle A bundle containing the query parameters.
+     * @param activity       A FragmentActivity object.
+     * @param deeplinkParcel The DeeplinkParcel containing the route and its parameters.
      * @return true in case it injected values, false otherwise.
      */
-    private static boolean injectFragment(FragmentActivity activity, String route,
-                                          Bundle routeParametersBundle,
-                                          Bundle queryParametersBundle,
-                                          String metadata) {
+    private static boolean injectFragment(FragmentActivity activity,
+                                          DeeplinkParcel deeplinkParcel) {
         DeeplinkFragmentActivity deeplinkFragmentActivityAnnotation =
                 getFragmentAnnotationFromClass(activity.getClass());
 
@@ -274,17 +304,16 @@ public class AnnotationParser {
             return false;
 
         Class[] fragmentClasses = deeplinkFragmentActivityAnnotation.fragments();
-        Class<?> fragmentClass = findFragmentForRoute(route, fragmentClasses);
+        Class<?> fragmentClass = findFragmentForRoute(deeplinkParcel.getRoute(), fragmentClasses);
 
         if (fragmentClass == null)
             return false;
 
         try {
             Bundle bundle = new Bundle();
-            bundle.putString(IntentRouteImpl.BUNDLE_KEY, route);
-            bundle.putBundle(IntentRouteImpl.ROUTE_PARAMETERS_BUNDLE_KEY, routeParametersBundle);
-            bundle.putBundle(IntentRouteImpl.QUERY_PARAMETERS_BUNDLE_KEY, queryParametersBundle);
-            bundle.putString(IntentRouteImpl.METADATA_KEY, metadata);
+            bundle.putString(IntentRouteImpl.BUNDLE_KEY, deeplinkParcel.getRoute());
+            bundle.putParcelable(IntentRouteImpl.DEEPLINK_KEY, deeplinkParcel);
+            deeplinkParcel.writeLegacyBundles(bundle);
             if (Fragment.class.isAssignableFrom(fragmentClass)) {
                 Fragment fragment = (Fragment) fragmentClass.getDeclaredConstructor().newInstance();
                 fragment.setArguments(bundle);
@@ -311,51 +340,89 @@ public class AnnotationParser {
     /**
      * Injects a route, route parameters and query parameters to a given annotated object.
      *
-     * @param object                The annotated object.
-     * @param route                 The given route.
-     * @param routeParametersBundle A bundle containing the route parameters.
-     * @param queryParametersBundle A bundle containing the query parameters.
+     * @param object         The annotated object.
+     * @param deeplinkParcel The DeeplinkParcel containing the route and its parameters.
      * @return true in case it injected values, false otherwise.
      */
-    private static boolean inject(Object object, String route, Bundle routeParametersBundle,
-                                  Bundle queryParametersBundle, String metadata) {
+    private static boolean inject(Object object, DeeplinkParcel deeplinkParcel) {
         Deeplinking deeplinking = Hoko.deeplinking();
         if (deeplinking != null) {
-            Route routeObj = deeplinking.routing().getRoute(route);
+            Route routeObj = deeplinking.routing().getRoute(deeplinkParcel.getRoute());
             if (routeObj instanceof IntentRouteImpl) {
-                IntentRouteImpl hokoIntentRoute = (IntentRouteImpl) routeObj;
-                if (routeParametersBundle != null && queryParametersBundle != null) {
-                    if (hokoIntentRoute.getRouteParameters() != null) {
-                        for (String key : hokoIntentRoute.getRouteParameters().keySet()) {
-                            Field field = hokoIntentRoute.getRouteParameters().get(key);
-                            String parameter = routeParametersBundle.getString(key);
-                            if (parameter == null
-                                || !setValueForField(field, object, parameter, true))
-                                return false;
-                        }
-                    }
+                return inject(object, deeplinkParcel, (IntentRouteImpl) routeObj);
+            }
+        }
+        return false;
 
-                    if (hokoIntentRoute.getQueryParameters() != null) {
-                        for (String key : hokoIntentRoute.getQueryParameters().keySet()) {
-                            Field field = hokoIntentRoute.getQueryParameters().get(key);
-                            String parameter = queryParametersBundle.getString(key);
-                            if (parameter != null) {
-                                setValueForField(field, object, parameter, false);
-                            }
-                        }
-                    }
+    }
 
-                    Field metadataField = getMetadataField(object.getClass());
-                    if (metadataField != null && metadata != null) {
-                        setValueForField(metadataField, object, metadata, false);
-                    }
+    /**
+     * Injects the route parameters, query parameters and metadata of a DeeplinkParcel to a given
+     * annotated object, using the fields of an already found route.
+     *
+     * @param object          The annotated object.
+     * @param deeplinkParcel  The DeeplinkParcel containing the route and its parameters.
+     * @param hokoIntentRoute The route matching the DeeplinkParcel's route.
+     * @return true in case it injected values, false otherwise.
+     */
+    static boolean inject(Object object, DeeplinkParcel deeplinkParcel,
+                          IntentRouteImpl hokoIntentRoute) {
+        if (!resolveRoute(hokoIntentRoute))
+            return false;
 
-                    return true;
+        if (hokoIntentRoute.getRouteParameters() != null) {
+            for (String key : hokoIntentRoute.getRouteParameters().keySet()) {
+                Field field = hokoIntentRoute.getRouteParameters().get(key);
+                String parameter = deeplinkParcel.getRouteParameter(key);
+                if (parameter == null && hokoIntentRoute.isOptionalParameter(key))
+                    continue;
+                if (parameter == null
+                    || !setValueForField(field, object, parameter, true))
+                    return false;
+            }
+        }
+
+        if (hokoIntentRoute.getQueryParameters() != null) {
+            for (String key : hokoIntentRoute.getQueryParameters().keySet()) {
+                Field field = hokoIntentRoute.getQueryParameters().get(key);
+                String parameter = deeplinkParcel.getQueryParameter(key);
+                if (parameter != null) {
+                    setValueForField(field, object, parameter, false);
                 }
             }
         }
-        return false;
 
+        Field metadataField = getMetadataField(object.getClass());
+        if (metadataField != null && deeplinkParcel.hasMetadata()) {
+            setMetadataForField(metadataField, object, deeplinkParcel);
+        }
+
+        return true;
+    }
+
+    /**
+     * Sets the metadata on to an object's field, handing over the already parsed JSONObject in
+     * case the field is a JSONObject, so the metadata is never parsed more than once.
+     *
+     * @param field          The field annotated with DeeplinkMetadata.
+     * @param object         The object on which the field should be set.
+     * @param deeplinkParcel The DeeplinkParcel containing the metadata.
+     */
+    private static void setMetadataForField(Field field, Object object,
+                                            DeeplinkParcel deeplinkParcel) {
+        if (!field.getType().equals(JSONObject.class)) {
+            setValueForField(field, object, deeplinkParcel.getMetadataString(), false);
+            return;
+        }
+        boolean accessible = field.isAccessible();
+        try {
+            field.setAccessible(true);
+            field.set(object, deeplinkParcel.getMetadata());
+        } catch (IllegalAccessException e) {
+            HokoLog.d(e);
+        } finally {
+            field.setAccessible(accessible);
+        }
     }
 
     /**
@@ -512,35 +579,232 @@ public class AnnotationParser {
      * the route format, the activity name, its annotated routeParameters and queryParameters, and
      * finally mapping them to the Deeplinking module according to DeeplinkRoute or
      * DeeplinkDefaultRoute annotations.
+     * In case the application enables lazy route registration through the
+     * com.hokolinks.LAZY_ROUTES meta-data, only the activity meta-data is read instead, leaving
+     * the loading of each class to the first time its route is matched.
+     * Otherwise, the resulting route table is saved to a snapshot once every activity was parsed,
+     * and the next launches of the same versionCode map the routes out of the snapshot instead,
+     * without loading any class until its route is matched.
      *
      * @param context The application context.
      */
     public static void parseActivities(Context context) {
+        if (isLazyRouteRegistration(context)) {
+            parseActivitiesMetadata(context);
+            return;
+        }
+        Deeplinking deeplinking = Hoko.deeplinking();
+        if (deeplinking == null)
+            return;
+
+        long snapshotStart = Metrics.beginSection("Hoko.loadRouteTableSnapshot");
+        boolean loaded = RouteTableSnapshot.load(context, deeplinking);
+        Metrics.endSection(Metrics.Stage.SETUP_SNAPSHOT, null, snapshotStart);
+        if (loaded)
+            return;
+
+        long activitiesStart = Metrics.beginSection("Hoko.getActivities");
         List<String> activitiesList = getActivities(context);
-        for (String activityName : activitiesList) {
+        Metrics.endSection(Metrics.Stage.SETUP_ACTIVITIES, null, activitiesStart);
+        if (parseClasses(deeplinking, activitiesList))
+            RouteTableSnapshot.save(context, deeplinking.routing());
+    }
+
+    /**
+     * Maps the routes of the annotated activities with the given class names, as well as the
+     * routes of their fragments, timing each class.
+     *
+     * @param deeplinking The Deeplinking instance to map the routes to.
+     * @param classNames  The class names of the activities.
+     * @return true in case every class was found, false otherwise.
+     */
+    static boolean parseClasses(Deeplinking deeplinking, List<String> classNames) {
+        boolean parsed = true;
+        for (String className : classNames) {
+            long classStart = Metrics.beginSection("Hoko.mapClassToDeeplink");
+            try {
+                Class classObject = Class.forName(className);
+                mapClassToDeeplink(deeplinking, classObject, classObject, true, true);
+            } catch (ClassNotFoundException e) {
+                HokoLog.e(e);
+                parsed = false;
+            }
+            Metrics.endSection(Metrics.Stage.MAP_CLASS, className, classStart);
+        }
+        return parsed;
+    }
+
+    /**
+     * Maps the routes declared through meta-data on each activity of the AndroidManifest.xml,
+     * without loading any of the activity classes.
+     * As the classes are not loaded, their annotations are never read: every route of an activity,
+     * including the routes of its fragments, must be listed in its meta-data to be mapped, while
+     * the annotations only bind the parameters to fields once the route is resolved.
+     * <pre>{@code
+     * <activity android:name=".ProductActivity">
+     *     <meta-data android:name="com.hokolinks.ROUTES"
+     *                android:value="product/:product_id,store/:store_id/product/:product_id" />
+     *     <meta-data android:name="com.hokolinks.DEFAULT_ROUTE" android:value="true" />
+     * </activity>
+     * }</pre>
+     *
+     * @param context The application context.
+     */
+    private static void parseActivitiesMetadata(Context context) {
+        Deeplinking deeplinking = Hoko.deeplinking();
+        if (deeplinking == null)
+            return;
+
+        ActivityInfo[] activityInfoList = getActivityInfoList(context,
+                PackageManager.GET_ACTIVITIES | PackageManager.GET_META_DATA);
+        for (ActivityInfo activityInfo : activityInfoList) {
+            Bundle metadata = activityInfo.metaData;
+            if (metadata == null)
+                continue;
+
+            String routes = metadata.getString(ROUTES_METADATA_KEY);
+            if (routes != null) {
+                for (String route : routes.split(",")) {
+                    route = route.trim();
+                    if (route.length() > 0)
+                        deeplinking.mapLazyRoute(route, activityInfo.name);
+                }
+            }
+            if (metadata.getBoolean(DEFAULT_ROUTE_METADATA_KEY, false)) {
+                deeplinking.mapLazyRoute(null, activityInfo.name);
+            }
+        }
+    }
+
+    /**
+     * Checks whether the application enabled lazy route registration through the
+     * com.hokolinks.LAZY_ROUTES meta-data on its AndroidManifest.xml application tag.
+     *
+     * @param context The application context.
+     * @return true in case lazy route registration is enabled, false otherwise.
+     */
+    private static boolean isLazyRouteRegistration(Context context) {
+        try {
+            Bundle metadata = context.getPackageManager().getApplicationInfo(
+                    context.getPackageName(), PackageManager.GET_META_DATA).metaData;
+            return metadata != null && metadata.getBoolean(LAZY_ROUTES_METADATA_KEY, false);
+        } catch (Exception e) {
+            HokoLog.e(e);
+        }
+        return false;
+    }
+
+    /**
+     * Resolves a lazily registered route, loading its activity class and the route and query
+     * parameter fields of either the activity or the fragment which declares the route.
+     * Routes which are already resolved are returned right away, while routes which failed to
+     * resolve are remembered as such, so the failure is only logged the first time.
+     *
+     * @param intentRoute The route to resolve.
+     * @return true in case the route is resolved and valid, false otherwise.
+     */
+    public static boolean resolveRoute(IntentRouteImpl intentRoute) {
+        if (intentRoute.isUnresolvable())
+            return false;
+        if (intentRoute.isResolved())
+            return true;
+
+        synchronized (intentRoute) {
+            if (intentRoute.isUnresolvable())
+                return false;
+            if (intentRoute.isResolved())
+                return true;
+
+            Class activityClass;
             try {
-                Class classObject = Class.forName(activityName);
-                mapClassToDeeplink(activityName, classObject, true, true);
+                activityClass = Class.forName(intentRoute.getActivityClassName());
             } catch (ClassNotFoundException e) {
                 HokoLog.e(e);
+                intentRoute.setUnresolvable();
+                return false;
+            }
+
+            String route = intentRoute.getRoute();
+            if (!resolveFieldBindings(intentRoute, activityClass)) {
+                if (route == null || route.length() == 0) {
+                    intentRoute.resolve(activityClass, null, getQueryParameters(activityClass));
+                } else {
+                    Class classObject = findClassForRoute(route, activityClass);
+                    intentRoute.resolve(activityClass, getRouteParameters(classObject),
+                            getQueryParameters(classObject));
+                }
+            }
+
+            if (!intentRoute.isValid()) {
+                HokoLog.e(new InvalidRouteException(intentRoute.getActivityClassName(),
+                        intentRoute.getRoute()));
+                intentRoute.setUnresolvable();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Resolves a lazily registered route out of the field bindings of a route table snapshot,
+     * without looking for annotations.
+     *
+     * @param intentRoute   The route to resolve.
+     * @param activityClass The activity class.
+     * @return true in case the route was resolved, false in case it has no field bindings or a
+     * field no longer exists.
+     */
+    private static boolean resolveFieldBindings(IntentRouteImpl intentRoute,
+                                                Class activityClass) {
+        if (intentRoute.getQueryParameterBindings() == null)
+            return false;
+        HashMap<String, Field> queryParameters =
+                RouteTableSnapshot.fieldsForBindings(intentRoute.getQueryParameterBindings());
+        HashMap<String, Field> routeParameters =
+                RouteTableSnapshot.fieldsForBindings(intentRoute.getRouteParameterBindings());
+        if (queryParameters == null
+                || (routeParameters == null && intentRoute.getRouteParameterBindings() != null))
+            return false;
+        intentRoute.resolve(activityClass, routeParameters, queryParameters);
+        return true;
+    }
+
+    /**
+     * Finds the class declaring a given route, which is either the activity itself or one of the
+     * fragments of its DeeplinkFragmentActivity annotation.
+     *
+     * @param route         A sanitized route string.
+     * @param activityClass The activity class.
+     * @return The class declaring the route, the activity class if none is found.
+     */
+    private static Class findClassForRoute(String route, Class activityClass) {
+        DeeplinkFragmentActivity deeplinkFragmentActivityAnnotation =
+                getFragmentAnnotationFromClass(activityClass);
+        if (deeplinkFragmentActivityAnnotation != null) {
+            for (Class fragmentClass : deeplinkFragmentActivityAnnotation.fragments()) {
+                String routeFromClass = routeFromClass(fragmentClass);
+                if (routeFromClass != null
+                        && URL.sanitizeURL(routeFromClass).equalsIgnoreCase(route))
+                    return fragmentClass;
             }
         }
+        return activityClass;
     }
 
     /**
      * This function will parse all the fragment annotations in a given class object and will map
      * those deeplinks to the parent activity.
      *
-     * @param classObject  A classObject (usually an activity).
-     * @param activityName The activityName.
+     * @param deeplinking The Deeplinking instance to map the routes to.
+     * @param classObject A classObject (usually an activity).
      */
-    private static void parseFragmentActivity(Class classObject, String activityName) {
+    private static void parseFragmentActivity(Deeplinking deeplinking, Class classObject) {
         DeeplinkFragmentActivity deeplinkFragmentActivityAnnotation =
                 getFragmentAnnotationFromClass(classObject);
         if (deeplinkFragmentActivityAnnotation != null) {
             Class[] fragmentClasses = deeplinkFragmentActivityAnnotation.fragments();
             for (Class fragmentClass : fragmentClasses) {
-                mapClassToDeeplink(activityName, fragmentClass, false, false);
+                mapClassToDeeplink(deeplinking, classObject, fragmentClass, false, false);
             }
         }
     }
@@ -548,44 +812,41 @@ public class AnnotationParser {
     /**
      * Maps a given class and activity to a deeplinking route.
      *
-     * @param activityName   The activity class name.
+     * @param deeplinking    The Deeplinking instance to map the routes to.
+     * @param activityClass  The activity class.
      * @param classObject    The class object.
      * @param shouldDefault  true if it should look for a default route, false otherwise.
      * @param shouldFragment true if it should look for fragments inside the class, false otherwise.
      */
-    private static void mapClassToDeeplink(String activityName, Class classObject,
-                                           boolean shouldDefault, boolean shouldFragment) {
+    private static void mapClassToDeeplink(Deeplinking deeplinking, Class activityClass,
+                                           Class classObject, boolean shouldDefault,
+                                           boolean shouldFragment) {
         String route = routeFromClass(classObject);
-        Deeplinking deeplinking = Hoko.deeplinking();
-        if (deeplinking != null) {
-            if (route != null) {
-                HashMap<String, Field> routeParameters = getRouteParameters(classObject);
-                HashMap<String, Field> queryParameters = getQueryParameters(classObject);
-                deeplinking.mapRoute(route, activityName, routeParameters, queryParameters);
-            } else {
-                mapClassToMultipleDeeplink(activityName, classObject);
-            }
-            if (shouldDefault && isDefaultRoute(classObject)) {
-                HashMap<String, Field> queryParameters = getQueryParameters(classObject);
-                deeplinking.mapDefaultRoute(activityName, queryParameters);
-            }
+        if (route != null) {
+            HashMap<String, Field> routeParameters = getRouteParameters(classObject);
+            HashMap<String, Field> queryParameters = getQueryParameters(classObject);
+            deeplinking.mapRoute(route, activityClass, routeParameters, queryParameters);
+        } else {
+            mapClassToMultipleDeeplink(deeplinking, activityClass, classObject);
+        }
+        if (shouldDefault && isDefaultRoute(classObject)) {
+            HashMap<String, Field> queryParameters = getQueryParameters(classObject);
+            deeplinking.mapDefaultRoute(activityClass, queryParameters);
         }
 
         if (shouldFragment) {
-            parseFragmentActivity(classObject, activityName);
+            parseFragmentActivity(deeplinking, classObject);
         }
     }
 
-    private static void mapClassToMultipleDeeplink(String activityName, Class classObject) {
+    private static void mapClassToMultipleDeeplink(Deeplinking deeplinking, Class activityClass,
+                                                   Class classObject) {
         List<String> routes = routesFromClass(classObject);
-        Deeplinking deeplinking = Hoko.deeplinking();
-        if (deeplinking != null) {
-            if (routes != null) {
-                for (String route : routes) {
-                    HashMap<String, Field> routeParameters = getRouteParameters(classObject);
-                    HashMap<String, Field> queryParameters = getQueryParameters(classObject);
-                    deeplinking.mapRoute(route, activityName, routeParameters, queryParameters);
-                }
+        if (routes != null) {
+            for (String route : routes) {
+                HashMap<String, Field> routeParameters = getRouteParameters(classObject);
+                HashMap<String, Field> queryParameters = getQueryParameters(classObject);
+                deeplinking.mapRoute(route, activityClass, routeParameters, queryParameters);
             }
         }
     }
@@ -684,17 +945,30 @@ public class AnnotationParser {
      */
     private static List<String> getActivities(Context context) {
         List<String> activitiesList = new ArrayList<>();
+        for (ActivityInfo activityInfo : getActivityInfoList(context,
+                PackageManager.GET_ACTIVITIES)) {
+            activitiesList.add(activityInfo.name);
+        }
+        return activitiesList;
+    }
+
+    /**
+     * Retrieves the ActivityInfo of every activity on the AndroidManifest.xml.
+     *
+     * @param context The application context.
+     * @param flags   The PackageManager flags.
+     * @return An array of ActivityInfo, empty in case it could not be retrieved.
+     */
+    private static ActivityInfo[] getActivityInfoList(Context context, int flags) {
         try {
             ActivityInfo[] activityInfoList = context.getPackageManager()
-                    .getPackageInfo(context.getPackageName(), PackageManager.GET_ACTIVITIES)
-                    .activities;
-            for (ActivityInfo activityInfo : activityInfoList) {
-                activitiesList.add(activityInfo.name);
-            }
+                    .getPackageInfo(context.getPackageName(), flags).activities;
+            if (activityInfoList != null)
+                return activityInfoList;
         } catch (Exception e) {
             HokoLog.e(e);
         }
-        return activitiesList;
+        return new ActivityInfo[0];
     }
 
 }
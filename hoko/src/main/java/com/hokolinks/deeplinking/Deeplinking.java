@@ -4,11 +4,14 @@ import android.app.Activity;
 import android.content.Context;
 import android.support.v4.app.Fragment;
 
+import com.hokolinks.Hoko;
 import com.hokolinks.deeplinking.listeners.LinkGenerationListener;
 import com.hokolinks.deeplinking.listeners.SmartlinkResolveListener;
+import com.hokolinks.model.AsyncFilterCallback;
 import com.hokolinks.model.Deeplink;
 import com.hokolinks.model.DeeplinkCallback;
 import com.hokolinks.model.FilterCallback;
+import com.hokolinks.model.PrefetchStatistics;
 import com.hokolinks.model.exceptions.LinkGenerationException;
 import com.hokolinks.utils.log.HokoLog;
 import com.hokolinks.utils.networking.Networking;
@@ -19,6 +22,7 @@ import org.json.JSONObject;
 
 import java.lang.reflect.Field;
 import java.util.HashMap;
+import java.util.concurrent.Executor;
 
 /**
  * The Deeplinking module provides all the necessary APIs to map, handle and generate deeplinks.
@@ -35,11 +39,36 @@ public class Deeplinking {
     private String mToken;
 
     public Deeplinking(String token, Context context) {
+        this(token, context, Hoko.isDebugMode());
+    }
+
+    /**
+     * The constructor for Deeplinking with the debug mode, in which the mapped routes are posted
+     * to the Hoko backend service. Used by Hoko.setup(...), as the debug mode can not be looked
+     * up before the setup is done.
+     *
+     * @param token     The Hoko API Token.
+     * @param context   A context object.
+     * @param debugMode true to post the mapped routes, false otherwise.
+     */
+    public Deeplinking(String token, Context context, boolean debugMode) {
+        this(token, context, debugMode, new LinkGenerator(token));
+    }
+
+    /**
+     * The constructor for Deeplinking with the LinkGenerator generating its Smartlinks.
+     *
+     * @param token         The Hoko API Token.
+     * @param context       A context object.
+     * @param debugMode     true to post the mapped routes to the Hoko backend service.
+     * @param linkGenerator The LinkGenerator instance.
+     */
+    Deeplinking(String token, Context context, boolean debugMode, LinkGenerator linkGenerator) {
         mToken = token;
         mHandling = new Handling();
         mFiltering = new Filtering();
-        mRouting = new Routing(token, context, mHandling, mFiltering);
-        mLinkGenerator = new LinkGenerator(token);
+        mRouting = new Routing(token, context, mHandling, mFiltering, debugMode);
+        mLinkGenerator = linkGenerator;
         mResolver = new Resolver(token, context);
     }
 
@@ -47,14 +76,41 @@ public class Deeplinking {
     /**
      * Maps a route to an activity class and its fields as route parameters or query parameters.
      *
+     * @param route           The route in route format.
+     * @param activityClass   The activity's class.
+     * @param routeParameters The route parameters mapped from Strings to Fields.
+     * @param queryParameters The query parameters mapped from Strings to Fields.
+     */
+    void mapRoute(String route, Class<?> activityClass, HashMap<String, Field> routeParameters,
+                  HashMap<String, Field> queryParameters) {
+        mRouting.mapActivityRoute(route, activityClass, routeParameters, queryParameters);
+    }
+
+    /**
+     * Maps a route to an activity class name, deferring the loading of the class and its fields
+     * until the route is first matched.
+     *
      * @param route             The route in route format.
      * @param activityClassName The activity's class name.
-     * @param routeParameters   The route parameters mapped from Strings to Fields.
-     * @param queryParameters   The query parameters mapped from Strings to Fields.
      */
-    void mapRoute(String route, String activityClassName, HashMap<String, Field> routeParameters,
-                  HashMap<String, Field> queryParameters) {
-        mRouting.mapRoute(route, activityClassName, routeParameters, queryParameters);
+    void mapLazyRoute(String route, String activityClassName) {
+        mRouting.mapLazyRoute(route, activityClassName);
+    }
+
+    /**
+     * Maps a route to an activity's class name and its parameter fields by name, as read from a
+     * route table snapshot, loading neither the class nor its fields until the route is matched.
+     *
+     * @param route                  The route in route format.
+     * @param activityClassName      The activity's class name.
+     * @param routeParameterBindings The route parameter field bindings.
+     * @param queryParameterBindings The query parameter field bindings.
+     */
+    void mapLazyRoute(String route, String activityClassName,
+                      HashMap<String, String> routeParameterBindings,
+                      HashMap<String, String> queryParameterBindings) {
+        mRouting.mapLazyRoute(route, activityClassName, routeParameterBindings,
+                queryParameterBindings);
     }
 
     /**
@@ -71,11 +127,11 @@ public class Deeplinking {
     /**
      * Maps an activity class as a default route and its fields as query parameters.
      *
-     * @param activityClassName The activity's class name.
-     * @param queryParameters   The query parameters mapped from Strings to Fields.
+     * @param activityClass   The activity's class.
+     * @param queryParameters The query parameters mapped from Strings to Fields.
      */
-    void mapDefaultRoute(String activityClassName, HashMap<String, Field> queryParameters) {
-        mapRoute(null, activityClassName, null, queryParameters);
+    void mapDefaultRoute(Class<?> activityClass, HashMap<String, Field> queryParameters) {
+        mapRoute(null, activityClass, null, queryParameters);
     }
 
 
@@ -90,6 +146,31 @@ public class Deeplinking {
         mapRoute(null, callback);
     }
 
+    /**
+     * Prebuilds an Intent template for every route mapped to an activity, so that opening a deep
+     * link only has to copy the template and attach the deep link's parameters to it.
+     * Disabled by default.
+     *
+     * @param prebuildIntents true to prebuild the Intent templates, false otherwise.
+     */
+    public void setPrebuildIntents(boolean prebuildIntents) {
+        mRouting.setPrebuildIntents(prebuildIntents);
+    }
+
+    /**
+     * Sets the executor on which route callbacks and handlers are called once a deep link is
+     * opened. Deep links may be opened from a background thread after a smartlink is resolved or
+     * its metadata is retrieved, so by default they are called on the main thread.
+     * <pre>{@code
+     * Hoko.deeplinking().setDispatchExecutor(Executors.newSingleThreadExecutor());
+     * }</pre>
+     *
+     * @param executor An Executor or null to go back to the main thread.
+     */
+    public void setDispatchExecutor(Executor executor) {
+        mRouting.setDispatchExecutor(executor);
+    }
+
     /**
      * inject(activity) should be called on your DeeplinkRoute activities' onCreate(...) method.
      * It will try to map the current deeplink to annotated DeeplinkRouteParameters or
@@ -181,7 +262,8 @@ public class Deeplinking {
         }
         Networking.getNetworking().addRequest(
                 new HttpRequest(HttpRequest.HokoNetworkOperationType.POST,
-                        HttpRequest.getURLFromPath(INSTALL_PATH), mToken, jsonObject.toString()));
+                        HttpRequest.getURLFromPath(INSTALL_PATH), mToken, jsonObject.toString(),
+                        HttpRequest.HokoNetworkPriority.HIGH));
         mRouting.openURL(urlString, null, true);
     }
 
@@ -278,6 +360,31 @@ public class Deeplinking {
         mHandling.addHandler(callback);
     }
 
+    /**
+     * With addAsyncHandler() you can add a DeeplinkCallback to be called every time your
+     * application opens a deeplink, in parallel with the other asynchronous handlers on a
+     * background executor once the deeplinking target has been opened, so it does not delay
+     * navigation. This suits handlers which only track deeplinks.
+     * <pre>{@code
+     * Hoko.deeplinking().addAsyncHandler(analyticsHandler);
+     * }</pre>
+     *
+     * @param callback An object which implements the DeeplinkCallback interface.
+     */
+    public void addAsyncHandler(DeeplinkCallback callback) {
+        mHandling.addAsyncHandler(callback);
+    }
+
+    /**
+     * Sets the executor on which asynchronous handlers are called, which defaults to the
+     * AsyncTask thread pool.
+     *
+     * @param executor An Executor or null to use the AsyncTask thread pool.
+     */
+    public void setHandlerExecutor(Executor executor) {
+        mHandling.setAsyncExecutor(executor);
+    }
+
     /**
      * With removeHandler() you can remove a previously added DeeplinkCallback object.
      * <pre>{@code
@@ -323,6 +430,37 @@ public class Deeplinking {
         return mFiltering.removeFilter(filterCallback);
     }
 
+    /**
+     * With addFilter() you can also add an object which implements the AsyncFilterCallback
+     * interface, for filters which need to read from disk or the network. Asynchronous filters are
+     * called in parallel on a background thread once the other filters let the deeplink through,
+     * and have a deadline after which their default decision is taken.
+     * <pre>{@code
+     * Hoko.deeplinking().addFilter(new AsyncFilterCallback() {
+     *      public void openDeeplink(Deeplink deeplink, FilterDecision decision) {
+     *          decision.decide(featureFlags.isDeeplinkingEnabled());
+     *      }}, 500, true);
+     * }</pre>
+     *
+     * @param filterCallback  An object which implements the AsyncFilterCallback interface.
+     * @param timeoutMillis   The time the filter has to decide, in milliseconds.
+     * @param defaultDecision The decision taken in case the filter times out.
+     */
+    public void addFilter(AsyncFilterCallback filterCallback, long timeoutMillis,
+                          boolean defaultDecision) {
+        mFiltering.addFilter(filterCallback, timeoutMillis, defaultDecision);
+    }
+
+    /**
+     * With removeFilter() you can remove a previously added AsyncFilterCallback object.
+     *
+     * @param filterCallback An object which implements the AsyncFilterCallback interface.
+     * @return true if the filter was removed, false otherwise.
+     */
+    public boolean removeFilter(AsyncFilterCallback filterCallback) {
+        return mFiltering.removeFilter(filterCallback);
+    }
+
     // Link Generation
 
     /**
@@ -439,6 +577,32 @@ public class Deeplinking {
         }
     }
 
+    /**
+     * prefetchSmartlink(deeplink) generates a Smartlink in the background for content the
+     * application expects to be shared soon (e.g. the item currently on screen), so that a later
+     * generateSmartlink(deeplink, listener) call can be answered right away, or attached to the
+     * request which is still in flight. Prefetches run on a low priority queue with a limited
+     * number of concurrent requests and do not call back.
+     * <pre>{@code
+     * Hoko.deeplinking().prefetchSmartlink(Deeplink.deeplink("products/:id", routeParameters));
+     * }</pre>
+     *
+     * @param deeplink A Deeplink object.
+     */
+    public void prefetchSmartlink(Deeplink deeplink) {
+        mLinkGenerator.prefetchSmartlink(deeplink);
+    }
+
+    /**
+     * Returns the counters of the Smartlink prefetching, such as the prefetch hit rate and the
+     * number of prefetches that were never used.
+     *
+     * @return A PrefetchStatistics snapshot.
+     */
+    public PrefetchStatistics getPrefetchStatistics() {
+        return mLinkGenerator.getPrefetchStatistics();
+    }
+
     /**
      *  generateLazySmartlink(deeplink, domain) allows the app to generate lazy Smartlinks for the
      *  user to share with other users, independent of the platform, users will be redirected to the
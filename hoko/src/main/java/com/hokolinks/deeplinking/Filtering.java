@@ -1,21 +1,41 @@
 package com.hokolinks.deeplinking;
 
+import android.os.AsyncTask;
+
+import com.hokolinks.model.AsyncFilterCallback;
 import com.hokolinks.model.Deeplink;
 import com.hokolinks.model.DeeplinkCallback;
 import com.hokolinks.model.FilterCallback;
+import com.hokolinks.utils.log.HokoLog;
 
 import java.util.ArrayList;
+import java.util.List;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * This class serves the purpose of abstracting the call of filters from the Deeplinking
- * module, it calls the filters in the order they were added.
+ * module, it calls the filters in the order they were added. Filters can be added or removed
+ * from any thread, even while deeplinks are being filtered. Asynchronous filters are only called
+ * once every synchronous filter let the deeplink through, and are then called in parallel on a
+ * background executor, each with a deadline after which its default decision applies. The first
+ * filter deciding not to open the deeplink decides for the whole chain. The deadlines share a
+ * timer thread, which is only kept while there are asynchronous filters or pending deadlines.
  */
 public class Filtering {
 
-    private ArrayList<FilterCallback> mFilters;
+    private final List<FilterCallback> mFilters;
+    private final List<AsyncFilter> mAsyncFilters;
+    private volatile Executor mAsyncExecutor;
+    private Timer mTimer;
+    private int mPendingTimeouts;
 
     public Filtering() {
-        mFilters = new ArrayList<>();
+        mFilters = new CopyOnWriteArrayList<>();
+        mAsyncFilters = new CopyOnWriteArrayList<>();
     }
 
     /**
@@ -38,7 +58,50 @@ public class Filtering {
     }
 
     /**
-     * Calls all the filters to make sure the deeplink should be opened.
+     * Adds an AsyncFilterCallback object to the registered asynchronous filters.
+     *
+     * @param callback        An AsyncFilterCallback object.
+     * @param timeoutMillis   The time the filter has to decide, in milliseconds.
+     * @param defaultDecision The decision taken in case the filter times out.
+     */
+    public void addFilter(AsyncFilterCallback callback, long timeoutMillis,
+                          boolean defaultDecision) {
+        mAsyncFilters.add(new AsyncFilter(callback, timeoutMillis, defaultDecision));
+    }
+
+    /**
+     * Removes an AsyncFilterCallback object from the registered asynchronous filters.
+     *
+     * @param callback An AsyncFilterCallback object.
+     * @return true if filter was removed, false otherwise.
+     */
+    public boolean removeFilter(AsyncFilterCallback callback) {
+        for (AsyncFilter asyncFilter : mAsyncFilters) {
+            if (asyncFilter.mCallback == callback) {
+                boolean removed = mAsyncFilters.remove(asyncFilter);
+                releaseTimerIfIdle();
+                return removed;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Sets the executor on which asynchronous filters are called, which defaults to the
+     * AsyncTask thread pool.
+     *
+     * @param asyncExecutor An Executor or null to use the AsyncTask thread pool.
+     */
+    public void setAsyncExecutor(Executor asyncExecutor) {
+        mAsyncExecutor = asyncExecutor;
+    }
+
+    public boolean hasAsyncFilters() {
+        return !mAsyncFilters.isEmpty();
+    }
+
+    /**
+     * Calls all the synchronous filters to make sure the deeplink should be opened.
      *
      * @param deeplink A deeplink object.
      */
@@ -51,4 +114,168 @@ public class Filtering {
         return true;
     }
 
+    /**
+     * Calls the synchronous filters and then all the asynchronous filters in parallel to make sure
+     * the deeplink should be opened. The decision is taken on the calling thread in case there are
+     * no asynchronous filters or a synchronous filter decides not to open the deeplink.
+     *
+     * @param deeplink A deeplink object.
+     * @param decision The FilterDecision which receives the decision of the whole chain.
+     */
+    public void filter(Deeplink deeplink, AsyncFilterCallback.FilterDecision decision) {
+        if (!filter(deeplink)) {
+            decision.decide(false);
+            return;
+        }
+        List<AsyncFilter> asyncFilters = new ArrayList<>(mAsyncFilters);
+        if (asyncFilters.isEmpty()) {
+            decision.decide(true);
+            return;
+        }
+        Executor asyncExecutor = mAsyncExecutor;
+        if (asyncExecutor == null) {
+            asyncExecutor = AsyncTask.THREAD_POOL_EXECUTOR;
+        }
+        FilterChain filterChain = new FilterChain(asyncFilters.size(), decision);
+        for (AsyncFilter asyncFilter : asyncFilters) {
+            asyncFilter.filter(deeplink, filterChain, asyncExecutor, this);
+        }
+    }
+
+    /**
+     * Schedules the deadline of an asynchronous filter, starting the timer thread if needed.
+     *
+     * @param timeoutTask   The task taking the default decision.
+     * @param timeoutMillis The deadline, in milliseconds.
+     */
+    private synchronized void scheduleTimeout(TimerTask timeoutTask, long timeoutMillis) {
+        if (mTimer == null) {
+            mTimer = new Timer("HokoFilterTimeout", true);
+        }
+        mTimer.schedule(timeoutTask, timeoutMillis);
+        mPendingTimeouts++;
+    }
+
+    /**
+     * Accounts for a deadline which either expired or was beaten by the filter's decision,
+     * purging the cancelled task from the timer in the latter case.
+     *
+     * @param cancelled true in case the deadline was beaten, false in case it expired.
+     */
+    private synchronized void onTimeoutFinished(boolean cancelled) {
+        mPendingTimeouts--;
+        if (cancelled && mTimer != null) {
+            mTimer.purge();
+        }
+        releaseTimerIfIdle();
+    }
+
+    /**
+     * Stops the timer thread once there are neither asynchronous filters nor pending deadlines.
+     */
+    private synchronized void releaseTimerIfIdle() {
+        if (mTimer != null && mPendingTimeouts == 0 && mAsyncFilters.isEmpty()) {
+            mTimer.cancel();
+            mTimer = null;
+        }
+    }
+
+    /**
+     * Checks whether the timer thread of the deadlines is running.
+     *
+     * @return true in case it is, false otherwise.
+     */
+    synchronized boolean hasTimer() {
+        return mTimer != null;
+    }
+
+    /**
+     * An asynchronous filter with its deadline and default decision.
+     */
+    private static class AsyncFilter {
+
+        private final AsyncFilterCallback mCallback;
+        private final long mTimeoutMillis;
+        private final boolean mDefaultDecision;
+
+        private AsyncFilter(AsyncFilterCallback callback, long timeoutMillis,
+                            boolean defaultDecision) {
+            mCallback = callback;
+            mTimeoutMillis = timeoutMillis;
+            mDefaultDecision = defaultDecision;
+        }
+
+        /**
+         * Calls the filter on the executor, handing the chain either its decision or, in case it
+         * does not decide in time or fails, its default decision.
+         */
+        private void filter(final Deeplink deeplink, final FilterChain filterChain,
+                            Executor executor, final Filtering filtering) {
+            final AtomicBoolean decided = new AtomicBoolean();
+            final TimerTask timeoutTask = new TimerTask() {
+                @Override
+                public void run() {
+                    if (decided.compareAndSet(false, true)) {
+                        HokoLog.d("Filter " + mCallback.getClass().getName() + " timed out");
+                        filtering.onTimeoutFinished(false);
+                        filterChain.onFilterDecided(mDefaultDecision);
+                    }
+                }
+            };
+            filtering.scheduleTimeout(timeoutTask, mTimeoutMillis);
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        mCallback.openDeeplink(deeplink, new AsyncFilterCallback.FilterDecision() {
+                            @Override
+                            public void decide(boolean openDeeplink) {
+                                if (decided.compareAndSet(false, true)) {
+                                    timeoutTask.cancel();
+                                    filtering.onTimeoutFinished(true);
+                                    filterChain.onFilterDecided(openDeeplink);
+                                }
+                            }
+                        });
+                    } catch (RuntimeException e) {
+                        HokoLog.e(e);
+                        if (decided.compareAndSet(false, true)) {
+                            timeoutTask.cancel();
+                            filtering.onTimeoutFinished(true);
+                            filterChain.onFilterDecided(mDefaultDecision);
+                        }
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Gathers the decisions of the asynchronous filters, deciding not to open the deeplink as soon
+     * as one of them does and to open it once all of them do.
+     */
+    private static class FilterChain {
+
+        private final AsyncFilterCallback.FilterDecision mDecision;
+        private int mPendingFilters;
+        private boolean mDecided;
+
+        private FilterChain(int pendingFilters, AsyncFilterCallback.FilterDecision decision) {
+            mPendingFilters = pendingFilters;
+            mDecision = decision;
+        }
+
+        private void onFilterDecided(boolean openDeeplink) {
+            synchronized (this) {
+                if (mDecided)
+                    return;
+                mPendingFilters--;
+                if (openDeeplink && mPendingFilters > 0)
+                    return;
+                mDecided = true;
+            }
+            mDecision.decide(openDeeplink);
+        }
+    }
+
 }
@@ -1,24 +1,36 @@
 package com.hokolinks.deeplinking;
 
+import android.os.AsyncTask;
+
 import com.hokolinks.model.Deeplink;
 import com.hokolinks.model.DeeplinkCallback;
+import com.hokolinks.utils.log.HokoLog;
+import com.hokolinks.utils.metrics.Metrics;
 
-import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
 
 /**
  * This class serves the purpose of abstracting the call of handlers from the Deeplinking
- * module, it calls the handlers in the order they were added.
+ * module, it calls the handlers in the order they were added. Handlers can be added or removed
+ * from any thread, even while deeplinks are being handled. Synchronous handlers are called before
+ * the deeplink's route is executed, asynchronous handlers are called in parallel on a background
+ * executor afterwards, so they do not delay navigation. Each handler call is timed.
  */
 public class Handling {
 
-    private ArrayList<DeeplinkCallback> mHandlers;
+    private final List<DeeplinkCallback> mHandlers;
+    private final List<DeeplinkCallback> mAsyncHandlers;
+    private volatile Executor mAsyncExecutor;
 
     public Handling() {
-        mHandlers = new ArrayList<>();
+        mHandlers = new CopyOnWriteArrayList<>();
+        mAsyncHandlers = new CopyOnWriteArrayList<>();
     }
 
     /**
-     * Adds a DeeplinkCallback object to the registered handlers.
+     * Adds a DeeplinkCallback object to the registered synchronous handlers.
      *
      * @param callback A DeeplinkCallback object.
      */
@@ -26,6 +38,16 @@ public class Handling {
         mHandlers.add(callback);
     }
 
+    /**
+     * Adds a DeeplinkCallback object to the registered asynchronous handlers, which are called on
+     * a background executor after navigation.
+     *
+     * @param callback A DeeplinkCallback object.
+     */
+    public void addAsyncHandler(DeeplinkCallback callback) {
+        mAsyncHandlers.add(callback);
+    }
+
     /**
      * Removes a DeeplinkCallback object from the registered handlers.
      *
@@ -33,18 +55,62 @@ public class Handling {
      * @return true if handler was removed, false otherwise.
      */
     public boolean removeHandler(DeeplinkCallback callback) {
-        return mHandlers.remove(callback);
+        return mHandlers.remove(callback) | mAsyncHandlers.remove(callback);
+    }
+
+    /**
+     * Sets the executor on which asynchronous handlers are called, which defaults to the
+     * AsyncTask thread pool.
+     *
+     * @param asyncExecutor An Executor or null to use the AsyncTask thread pool.
+     */
+    public void setAsyncExecutor(Executor asyncExecutor) {
+        mAsyncExecutor = asyncExecutor;
     }
 
     /**
-     * Delegates the deeplink to all the handlers registered.
+     * Delegates the deeplink to all the synchronous handlers registered.
      *
      * @param deeplink A deeplink object.
      */
     public void handle(Deeplink deeplink) {
         for (DeeplinkCallback handler : mHandlers) {
-            handler.deeplinkOpened(deeplink);
+            callHandler(handler, deeplink);
         }
     }
 
+    /**
+     * Delegates the deeplink to all the asynchronous handlers registered, submitting each of them
+     * to the executor separately so they run in parallel.
+     *
+     * @param deeplink A deeplink object.
+     */
+    public void handleAsynchronously(final Deeplink deeplink) {
+        if (mAsyncHandlers.isEmpty()) {
+            return;
+        }
+        Executor asyncExecutor = mAsyncExecutor;
+        if (asyncExecutor == null) {
+            asyncExecutor = AsyncTask.THREAD_POOL_EXECUTOR;
+        }
+        for (final DeeplinkCallback handler : mAsyncHandlers) {
+            asyncExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        callHandler(handler, deeplink);
+                    } catch (RuntimeException e) {
+                        HokoLog.e(e);
+                    }
+                }
+            });
+        }
+    }
+
+    private static void callHandler(DeeplinkCallback handler, Deeplink deeplink) {
+        long start = Metrics.start();
+        handler.deeplinkOpened(deeplink);
+        Metrics.record(Metrics.Stage.HANDLER, handler.getClass().getName(), start);
+    }
+
 }
@@ -3,11 +3,13 @@ package com.hokolinks.deeplinking;
 import com.hokolinks.Hoko;
 import com.hokolinks.deeplinking.listeners.LinkGenerationListener;
 import com.hokolinks.model.Deeplink;
+import com.hokolinks.model.PrefetchStatistics;
 import com.hokolinks.model.exceptions.InvalidDomainException;
 import com.hokolinks.model.exceptions.LazySmartlinkCantHaveURLsException;
 import com.hokolinks.model.exceptions.LinkGenerationException;
 import com.hokolinks.model.exceptions.NullDeeplinkException;
 import com.hokolinks.model.exceptions.RouteNotMappedException;
+import com.hokolinks.utils.Utils;
 import com.hokolinks.utils.log.HokoLog;
 import com.hokolinks.utils.networking.async.HttpRequest;
 import com.hokolinks.utils.networking.async.HttpRequestCallback;
@@ -15,21 +17,88 @@ import com.hokolinks.utils.networking.async.NetworkAsyncTask;
 
 import org.json.JSONObject;
 
-import java.io.UnsupportedEncodingException;
-import java.net.URL;
-import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * LinkGenerator serves the purpose of generating Smartlinks for a given deeplink.
  * It connects with the Hoko backend service and will return a http link which will redirect
  * according to the correct deeplink depending on the platform it is later opened.
+ * Smartlinks can also be prefetched on a low priority queue, generated Smartlinks are kept in a
+ * small cache and concurrent requests for the same deeplink share a single network call.
  */
 class LinkGenerator {
 
+    private static final String SMARTLINKS_PATH = "smartlinks";
+
+    // Configuration of the prefetching
+    private static final int PREFETCH_MAX_CONCURRENT_REQUESTS = 2;
+    private static final int PREFETCH_MAX_QUEUED_REQUESTS = 10;
+    private static final int SMARTLINK_CACHE_SIZE = 20;
+
     private String mToken;
+    private final Object mLock = new Object();
+    private final HashMap<String, SmartlinkRequest> mPendingRequests;
+    private final LinkedHashMap<String, CachedSmartlink> mSmartlinkCache;
+    private final Executor mPrefetchExecutor;
+
+    // Prefetch counters, guarded by mLock
+    private int mPrefetchCount;
+    private int mHitCount;
+    private int mMissCount;
+    private int mWastedCount;
 
     public LinkGenerator(String token) {
+        this(token, newPrefetchExecutor());
+    }
+
+    /**
+     * The constructor for LinkGenerator with the executor on which prefetches are queued.
+     *
+     * @param token            The Hoko API Token.
+     * @param prefetchExecutor The executor running the prefetch requests.
+     */
+    LinkGenerator(String token, Executor prefetchExecutor) {
         mToken = token;
+        mPendingRequests = new HashMap<>();
+        mSmartlinkCache = new LinkedHashMap<String, CachedSmartlink>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedSmartlink> eldest) {
+                if (size() > SMARTLINK_CACHE_SIZE) {
+                    if (eldest.getValue().isUnusedPrefetch()) {
+                        mWastedCount++;
+                    }
+                    return true;
+                }
+                return false;
+            }
+        };
+        mPrefetchExecutor = prefetchExecutor;
+    }
+
+    private static Executor newPrefetchExecutor() {
+        ThreadPoolExecutor prefetchExecutor = new ThreadPoolExecutor(
+                PREFETCH_MAX_CONCURRENT_REQUESTS, PREFETCH_MAX_CONCURRENT_REQUESTS, 30,
+                TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "HokoSmartlinkPrefetch");
+                thread.setPriority(Thread.MIN_PRIORITY);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        prefetchExecutor.allowCoreThreadTimeOut(true);
+        return prefetchExecutor;
     }
 
     /**
@@ -50,34 +119,188 @@ class LinkGenerator {
     }
 
     /**
-     * Performs a request to the Hoko backend service to translate a deeplink into an Smartlink.
-     * Calls the listener depending on the success or failure of such a network call.
+     * Generates a Smartlink in the background for a deeplink which is likely to be shared soon.
+     * The request runs on a low priority queue with a limited number of concurrent requests and
+     * its result is kept in the Smartlink cache, so a later generateSmartlink call for the same
+     * deeplink is either served from the cache or attached to the request still in flight.
+     *
+     * @param deeplink A user generated deeplink or an annotation based deeplink.
+     */
+    public void prefetchSmartlink(Deeplink deeplink) {
+        if (deeplink == null) {
+            HokoLog.e(new NullDeeplinkException());
+            return;
+        } else if (!Hoko.deeplinking().routing().routeExists(deeplink.getRoute())) {
+            HokoLog.e(new RouteNotMappedException());
+            return;
+        }
+        prefetch(deeplink);
+    }
+
+    /**
+     * Queues a prefetch for an already validated deeplink, unless it is already cached, in flight
+     * or the prefetch queue is full.
+     *
+     * @param deeplink A valid deeplink.
+     */
+    void prefetch(Deeplink deeplink) {
+        String payload = deeplink.json().toString();
+        SmartlinkRequest request;
+        synchronized (mLock) {
+            if (mSmartlinkCache.containsKey(payload) || mPendingRequests.containsKey(payload)) {
+                return;
+            }
+            if (countQueuedPrefetches() >= PREFETCH_MAX_QUEUED_REQUESTS) {
+                HokoLog.d("Prefetch queue is full, ignoring prefetch for " + deeplink.getRoute());
+                return;
+            }
+            request = new SmartlinkRequest(payload, deeplink.isUnique(), true);
+            mPendingRequests.put(payload, request);
+            mPrefetchCount++;
+        }
+        mPrefetchExecutor.execute(request);
+    }
+
+    /**
+     * Returns a snapshot of the prefetch counters.
+     *
+     * @return The current PrefetchStatistics.
+     */
+    public PrefetchStatistics getPrefetchStatistics() {
+        synchronized (mLock) {
+            return new PrefetchStatistics(mPrefetchCount, mHitCount, mMissCount, mWastedCount);
+        }
+    }
+
+    /**
+     * Serves a Smartlink from the cache when available, otherwise attaches the listener to a
+     * request already in flight for the same deeplink, or performs a new request to the Hoko
+     * backend service to translate the deeplink into a Smartlink.
+     * Unique Smartlinks are single use, so a request for one is only shared with a prefetch
+     * nobody is waiting for yet, every other caller gets its own request.
      *
      * @param deeplink A user generated deeplink or an annotation based deeplink.
      * @param listener A LinkGenerationListener instance.
      */
-    private void requestForSmartlink(Deeplink deeplink,
-                                     final LinkGenerationListener listener) {
-        new NetworkAsyncTask(new HttpRequest(HttpRequest.HokoNetworkOperationType.POST,
-                "smartlinks", mToken, deeplink.json().toString())
-                .toRunnable(new HttpRequestCallback() {
-                    @Override
-                    public void onSuccess(JSONObject jsonObject) {
-                        String smartlink = jsonObject.optString("smartlink");
-                        if (listener != null) {
-                            if (smartlink != null)
-                                listener.onLinkGenerated(smartlink);
-                            else
-                                listener.onError(new LinkGenerationException());
-                        }
-                    }
+    void requestForSmartlink(Deeplink deeplink, LinkGenerationListener listener) {
+        String payload = deeplink.json().toString();
+        String smartlink = null;
+        SmartlinkRequest request;
+        boolean isNewRequest = false;
+        synchronized (mLock) {
+            CachedSmartlink cachedSmartlink = mSmartlinkCache.get(payload);
+            request = mPendingRequests.get(payload);
+            if (cachedSmartlink != null) {
+                if (cachedSmartlink.mIsPrefetch) {
+                    mHitCount++;
+                }
+                if (cachedSmartlink.mIsUnique) {
+                    mSmartlinkCache.remove(payload);
+                }
+                cachedSmartlink.mWasUsed = true;
+                smartlink = cachedSmartlink.mSmartlink;
+            } else if (request != null && (!request.mIsUnique || request.mListeners.isEmpty())) {
+                if (request.mIsPrefetch) {
+                    mHitCount++;
+                }
+                request.mListeners.add(listener);
+            } else {
+                mMissCount++;
+                boolean isShared = request == null;
+                request = new SmartlinkRequest(payload, deeplink.isUnique(), false);
+                request.mListeners.add(listener);
+                if (isShared) {
+                    mPendingRequests.put(payload, request);
+                }
+                isNewRequest = true;
+            }
+        }
 
-                    @Override
-                    public void onFailure(Exception e) {
-                        if (listener != null)
-                            listener.onError(new LinkGenerationException());
-                    }
-                })).execute();
+        if (smartlink != null) {
+            if (listener != null) {
+                listener.onLinkGenerated(smartlink);
+            }
+        } else if (isNewRequest || !request.hasStarted()) {
+            // Either a new request or a prefetch still waiting on the low priority queue, which
+            // is promoted since someone is now waiting for it.
+            executeRequest(request);
+        }
+    }
+
+    /**
+     * Runs a Smartlink request on the networking thread pool.
+     *
+     * @param request The Smartlink request.
+     */
+    void executeRequest(Runnable request) {
+        new NetworkAsyncTask(request).execute();
+    }
+
+    /**
+     * Performs the request to the Hoko backend service which translates a deeplink into a
+     * Smartlink, on the calling thread.
+     *
+     * @param payload  The deeplink in JSON form.
+     * @param callback The HttpRequestCallback to be called with the response.
+     */
+    void fetchSmartlink(String payload, HttpRequestCallback callback) {
+        new HttpRequest(HttpRequest.HokoNetworkOperationType.POST, SMARTLINKS_PATH, mToken,
+                payload).toRunnable(callback).run();
+    }
+
+    /**
+     * Counts the prefetches which are yet to be started on the prefetch queue.
+     * Must be called while holding mLock.
+     *
+     * @return The number of queued prefetches.
+     */
+    private int countQueuedPrefetches() {
+        int count = 0;
+        for (SmartlinkRequest request : mPendingRequests.values()) {
+            if (request.mIsPrefetch && !request.hasStarted()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Called once a Smartlink request finishes, caching the result and notifying every listener
+     * that was attached to the request.
+     *
+     * @param request   The finished SmartlinkRequest.
+     * @param smartlink The generated Smartlink or null in case of failure.
+     */
+    private void onSmartlinkRequestFinished(SmartlinkRequest request, String smartlink) {
+        List<LinkGenerationListener> listeners;
+        synchronized (mLock) {
+            if (mPendingRequests.get(request.mPayload) == request) {
+                mPendingRequests.remove(request.mPayload);
+            }
+            listeners = new ArrayList<>(request.mListeners);
+            if (smartlink == null) {
+                if (request.mIsPrefetch && listeners.isEmpty()) {
+                    mWastedCount++;
+                }
+            } else if (!request.mIsUnique || listeners.isEmpty()) {
+                // Unique Smartlinks are only cached while nobody has used them yet
+                CachedSmartlink cachedSmartlink = new CachedSmartlink(smartlink,
+                        request.mIsPrefetch, request.mIsUnique);
+                cachedSmartlink.mWasUsed = !listeners.isEmpty();
+                mSmartlinkCache.put(request.mPayload, cachedSmartlink);
+            }
+        }
+
+        for (LinkGenerationListener listener : listeners) {
+            if (listener == null) {
+                continue;
+            }
+            if (smartlink != null) {
+                listener.onLinkGenerated(smartlink);
+            } else {
+                listener.onError(new LinkGenerationException());
+            }
+        }
     }
 
     /**
@@ -101,17 +324,85 @@ class LinkGenerator {
             String strippedDomain = domain + "";
             strippedDomain = strippedDomain.replace("http://", "");
             strippedDomain = strippedDomain.replace("https://","");
+            String url = deeplink.getURL();
             if (strippedDomain.contains("/")) {
                 HokoLog.e(new InvalidDomainException(domain));
-            } else {
-                try {
-                    return "http://" + domain + "lazy?uri=" + URLEncoder.encode(deeplink.getURL(), "UTF-8");
-                } catch (UnsupportedEncodingException e) {
-                    HokoLog.e(e);
-                }
+            } else if (url != null) {
+                StringBuilder lazySmartlink = new StringBuilder(strippedDomain.length()
+                        + url.length() + 32);
+                lazySmartlink.append("http://").append(strippedDomain).append("/lazy?uri=");
+                Utils.appendEncoded(lazySmartlink, url, true);
+                return lazySmartlink.toString();
             }
         }
         return null;
     }
 
+    /**
+     * A Smartlink generation request which can be shared by every caller asking for the same
+     * deeplink while it is in flight. It will only ever hit the network once, even if it is
+     * both queued as a prefetch and promoted by a generateSmartlink call.
+     */
+    private class SmartlinkRequest implements Runnable {
+
+        private final String mPayload;
+        private final boolean mIsUnique;
+        private final boolean mIsPrefetch;
+        private final AtomicBoolean mStarted;
+        private final List<LinkGenerationListener> mListeners;
+
+        SmartlinkRequest(String payload, boolean isUnique, boolean isPrefetch) {
+            mPayload = payload;
+            mIsUnique = isUnique;
+            mIsPrefetch = isPrefetch;
+            mStarted = new AtomicBoolean(false);
+            mListeners = new ArrayList<>();
+        }
+
+        boolean hasStarted() {
+            return mStarted.get();
+        }
+
+        @Override
+        public void run() {
+            if (!mStarted.compareAndSet(false, true)) {
+                return;
+            }
+            fetchSmartlink(mPayload, new HttpRequestCallback() {
+                @Override
+                public void onSuccess(JSONObject jsonObject) {
+                    onSmartlinkRequestFinished(SmartlinkRequest.this,
+                            jsonObject.optString("smartlink", null));
+                }
+
+                @Override
+                public void onFailure(Exception e) {
+                    onSmartlinkRequestFinished(SmartlinkRequest.this, null);
+                }
+            });
+        }
+    }
+
+    /**
+     * A generated Smartlink kept in the cache, along with whether it came from a prefetch and
+     * whether it was ever handed to the application.
+     */
+    private static class CachedSmartlink {
+
+        private final String mSmartlink;
+        private final boolean mIsPrefetch;
+        private final boolean mIsUnique;
+        private boolean mWasUsed;
+
+        CachedSmartlink(String smartlink, boolean isPrefetch, boolean isUnique) {
+            mSmartlink = smartlink;
+            mIsPrefetch = isPrefetch;
+            mIsUnique = isUnique;
+        }
+
+        boolean isUnusedPrefetch() {
+            return mIsPrefetch && !mWasUsed;
+        }
+    }
+
 }
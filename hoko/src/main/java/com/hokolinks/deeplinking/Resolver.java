@@ -6,6 +6,7 @@ import com.hokolinks.deeplinking.listeners.SmartlinkResolveListener;
 import com.hokolinks.model.Device;
 import com.hokolinks.model.exceptions.LinkResolveException;
 import com.hokolinks.utils.log.HokoLog;
+import com.hokolinks.utils.metrics.Metrics;
 import com.hokolinks.utils.networking.async.HttpRequest;
 import com.hokolinks.utils.networking.async.HttpRequestCallback;
 import com.hokolinks.utils.networking.async.NetworkAsyncTask;
@@ -25,12 +26,15 @@ class Resolver {
         mContext = context;
     }
 
-    public void resolveSmartlink(String smartlink, final SmartlinkResolveListener resolveListener) {
+    public void resolveSmartlink(final String smartlink,
+                                 final SmartlinkResolveListener resolveListener) {
+        final long start = Metrics.start();
         new NetworkAsyncTask(new HttpRequest(HttpRequest.HokoNetworkOperationType.POST,
                 RESOLVER_ENDPOINT, mToken, json(smartlink, mContext).toString())
                 .toRunnable(new HttpRequestCallback() {
                     @Override
                     public void onSuccess(JSONObject jsonObject) {
+                        Metrics.record(Metrics.Stage.RESOLVE, smartlink, start);
                         String deeplink = jsonObject.optString("deeplink");
                         JSONObject metadata = jsonObject.optJSONObject("metadata");
                         if (resolveListener != null) {
@@ -43,6 +47,7 @@ class Resolver {
 
                     @Override
                     public void onFailure(Exception e) {
+                        Metrics.record(Metrics.Stage.RESOLVE, smartlink, start);
                         if (resolveListener != null)
                             resolveListener.onError(new LinkResolveException());
                     }
@@ -0,0 +1,101 @@
+package com.hokolinks.deeplinking;
+
+import com.hokolinks.model.Route;
+import com.hokolinks.utils.metrics.Metrics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * RouteTable is an immutable snapshot of the mapped routes, sorted in the order they are matched
+ * and partitioned by their scheme and host qualifiers, so a URL is only matched against the routes
+ * qualified by its scheme and host, by its scheme alone, and the unqualified routes, in this order.
+ * Mapping a route creates a new RouteTable, which lets Routing publish it without locking reads.
+ */
+class RouteTable {
+
+    static final RouteTable EMPTY = new RouteTable(Collections.<Route>emptyList());
+
+    private static final String SCHEME_SEPARATOR = "://";
+
+    private final List<Route> mRoutes;
+    private final HashMap<String, List<Route>> mPartitions;
+    private final List<Route> mUnqualifiedRoutes;
+
+    private RouteTable(List<Route> routes) {
+        mRoutes = Collections.unmodifiableList(routes);
+        HashMap<String, List<Route>> partitions = new HashMap<>();
+        List<Route> unqualifiedRoutes = new ArrayList<>();
+        for (Route route : routes) {
+            if (route.getScheme() == null) {
+                unqualifiedRoutes.add(route);
+                continue;
+            }
+            String key = partitionKey(route.getScheme(), route.getHost());
+            List<Route> partition = partitions.get(key);
+            if (partition == null) {
+                partition = new ArrayList<>();
+                partitions.put(key, partition);
+            }
+            partition.add(route);
+        }
+        mPartitions = partitions;
+        mUnqualifiedRoutes = unqualifiedRoutes;
+    }
+
+    /**
+     * Creates a new RouteTable containing the routes of this one and a given route.
+     *
+     * @param route A Route object.
+     * @return The new RouteTable.
+     */
+    RouteTable with(Route route) {
+        ArrayList<Route> routes = new ArrayList<>(mRoutes.size() + 1);
+        routes.addAll(mRoutes);
+        routes.add(route);
+        long sortStart = Metrics.beginSection("Hoko.sortRoutes");
+        Routing.sortRoutes(routes);
+        Metrics.endSection(Metrics.Stage.SORT_ROUTES, null, sortStart);
+        return new RouteTable(routes);
+    }
+
+    /**
+     * Returns every route, sorted in the order they are matched.
+     *
+     * @return An unmodifiable List of Route objects.
+     */
+    List<Route> getRoutes() {
+        return mRoutes;
+    }
+
+    /**
+     * Returns the routes qualified by a given scheme and host.
+     *
+     * @param scheme The scheme of a URL.
+     * @param host   The host of a URL or null to get the routes qualified by the scheme alone.
+     * @return A List of Route objects or null in case there are none.
+     */
+    List<Route> getQualifiedRoutes(String scheme, String host) {
+        if (scheme == null || mPartitions.isEmpty())
+            return null;
+        return mPartitions.get(partitionKey(scheme.toLowerCase(Locale.ENGLISH),
+                host != null ? host.toLowerCase(Locale.ENGLISH) : null));
+    }
+
+    /**
+     * Returns the routes which are not qualified by a scheme, matching any URL.
+     *
+     * @return A List of Route objects.
+     */
+    List<Route> getUnqualifiedRoutes() {
+        return mUnqualifiedRoutes;
+    }
+
+    private static String partitionKey(String scheme, String host) {
+        return host != null ? scheme + SCHEME_SEPARATOR + host : scheme + SCHEME_SEPARATOR;
+    }
+
+}
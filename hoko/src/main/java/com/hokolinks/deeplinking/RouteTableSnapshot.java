@@ -0,0 +1,293 @@
+package com.hokolinks.deeplinking;
+
+import android.content.Context;
+import android.os.AsyncTask;
+
+import com.hokolinks.Hoko;
+import com.hokolinks.model.ClientInfo;
+import com.hokolinks.model.IntentRouteImpl;
+import com.hokolinks.model.Route;
+import com.hokolinks.utils.Utils;
+import com.hokolinks.utils.log.HokoLog;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.lang.reflect.Field;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * RouteTableSnapshot saves the route table built out of the annotated activities to a binary file,
+ * with each route, its activity class name and its parameter fields by name, as well as the
+ * default route. On the next launch the file is memory-mapped and its routes are mapped as lazily
+ * registered routes, skipping the discovery of the annotated activities through reflection.
+ * Snapshots are only valid for the application install, as told by its versionCode and last update
+ * time, and the SDK version which wrote them. Any snapshot which can not be read is ignored, so the
+ * annotated activities are parsed instead.
+ */
+class RouteTableSnapshot {
+
+    // Snapshot filename
+    private static final String FILENAME = "routes.snapshot";
+    // "HKRT" followed by the version of the format
+    private static final int MAGIC = 0x484b5254;
+    private static final int FORMAT_VERSION = 2;
+    // Smallest sizes of a serialized route and binding, made of empty or null strings
+    private static final int MIN_ROUTE_BYTES = 16;
+    private static final int MIN_BINDING_BYTES = 8;
+    // Separates the class name from the field name in field bindings
+    private static final char FIELD_SEPARATOR = '#';
+
+    private final String mRoute;
+    private final String mActivityClassName;
+    private final HashMap<String, String> mRouteParameterBindings;
+    private final HashMap<String, String> mQueryParameterBindings;
+
+    private RouteTableSnapshot(String route, String activityClassName,
+                               HashMap<String, String> routeParameterBindings,
+                               HashMap<String, String> queryParameterBindings) {
+        mRoute = route;
+        mActivityClassName = activityClassName;
+        mRouteParameterBindings = routeParameterBindings;
+        mQueryParameterBindings = queryParameterBindings;
+    }
+
+    /**
+     * Maps the routes of the snapshot saved by the same application install and SDK version,
+     * if any.
+     *
+     * @param context     A context object.
+     * @param deeplinking The Deeplinking instance to map the routes to.
+     * @return true in case the routes were mapped, false in case there is no valid snapshot.
+     */
+    static boolean load(Context context, Deeplinking deeplinking) {
+        ByteBuffer buffer = Utils.mapFile(FILENAME, context);
+        if (buffer == null)
+            return false;
+
+        ClientInfo clientInfo = ClientInfo.get(context);
+        return load(buffer, clientInfo.getVersionCode(), clientInfo.getLastUpdateTime(),
+                deeplinking.routing());
+    }
+
+    /**
+     * Maps the routes of a snapshot in case it was saved by the same application install and SDK
+     * version. No route is mapped in case the snapshot is truncated or corrupt.
+     *
+     * @param buffer         The snapshot.
+     * @param versionCode    The versionCode of the application.
+     * @param lastUpdateTime The last update time of the application.
+     * @param routing        The Routing instance to map the routes to.
+     * @return true in case the routes were mapped, false in case the snapshot is not valid.
+     */
+    static boolean load(ByteBuffer buffer, String versionCode, long lastUpdateTime,
+                        Routing routing) {
+        List<RouteTableSnapshot> routes;
+        try {
+            routes = read(buffer, versionCode, lastUpdateTime);
+        } catch (RuntimeException | UnsupportedEncodingException e) {
+            HokoLog.e(e);
+            routes = null;
+        }
+        if (routes == null)
+            return false;
+
+        for (RouteTableSnapshot route : routes) {
+            routing.mapLazyRoute(route.mRoute, route.mActivityClassName,
+                    route.mRouteParameterBindings, route.mQueryParameterBindings);
+        }
+        return true;
+    }
+
+    /**
+     * Saves the activity routes and default route of a Routing instance in the background,
+     * replacing any previous snapshot.
+     *
+     * @param context A context object.
+     * @param routing The Routing instance.
+     */
+    static void save(final Context context, Routing routing) {
+        ClientInfo clientInfo = ClientInfo.get(context);
+        final byte[] bytes;
+        try {
+            bytes = write(routing, clientInfo.getVersionCode(), clientInfo.getLastUpdateTime());
+        } catch (IOException e) {
+            HokoLog.e(e);
+            return;
+        }
+        AsyncTask.THREAD_POOL_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                Utils.saveBytesToFile(bytes, FILENAME, context);
+            }
+        });
+    }
+
+    private static List<RouteTableSnapshot> read(ByteBuffer buffer, String versionCode,
+                                                 long lastUpdateTime)
+            throws UnsupportedEncodingException {
+        if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION
+                || !equals(readString(buffer), versionCode)
+                || buffer.getLong() != lastUpdateTime
+                || !equals(readString(buffer), Hoko.VERSION))
+            return null;
+
+        int count = readCount(buffer, MIN_ROUTE_BYTES);
+        List<RouteTableSnapshot> routes = new ArrayList<>(count);
+        for (int index = 0; index < count; index++) {
+            String route = readString(buffer);
+            String activityClassName = readString(buffer);
+            HashMap<String, String> routeParameterBindings = readBindings(buffer);
+            HashMap<String, String> queryParameterBindings = readBindings(buffer);
+            if (activityClassName == null)
+                return null;
+            routes.add(new RouteTableSnapshot(route, activityClassName, routeParameterBindings,
+                    queryParameterBindings));
+        }
+        return routes;
+    }
+
+    /**
+     * Serializes the activity routes and default route of a Routing instance.
+     *
+     * @param routing        The Routing instance.
+     * @param versionCode    The versionCode of the application.
+     * @param lastUpdateTime The last update time of the application.
+     * @return The snapshot.
+     * @throws IOException Throws an IOException in case a route can not be serialized.
+     */
+    static byte[] write(Routing routing, String versionCode, long lastUpdateTime)
+            throws IOException {
+        List<Route> routes = new ArrayList<>(routing.getRoutes());
+        Route defaultRoute = routing.getRoute(null);
+        if (defaultRoute != null)
+            routes.add(defaultRoute);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(bytes);
+        output.writeInt(MAGIC);
+        output.writeInt(FORMAT_VERSION);
+        writeString(output, versionCode);
+        output.writeLong(lastUpdateTime);
+        writeString(output, Hoko.VERSION);
+
+        List<IntentRouteImpl> intentRoutes = new ArrayList<>(routes.size());
+        for (Route route : routes) {
+            if (route instanceof IntentRouteImpl && ((IntentRouteImpl) route).isResolved())
+                intentRoutes.add((IntentRouteImpl) route);
+        }
+        output.writeInt(intentRoutes.size());
+        for (IntentRouteImpl intentRoute : intentRoutes) {
+            writeString(output, intentRoute.getRoute());
+            writeString(output, intentRoute.getActivityClassName());
+            writeBindings(output, intentRoute.getRouteParameters());
+            writeBindings(output, intentRoute.getQueryParameters());
+        }
+        output.close();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Looks up the fields of a set of field bindings by name.
+     *
+     * @param bindings A HashMap where the keys are parameter names and the values are field
+     *                 bindings, or null.
+     * @return A HashMap where the keys are parameter names and the values are Fields, null in
+     * case there are no bindings or a field no longer exists.
+     */
+    static HashMap<String, Field> fieldsForBindings(HashMap<String, String> bindings) {
+        if (bindings == null)
+            return null;
+        HashMap<String, Field> fields = new HashMap<>(bindings.size());
+        for (Map.Entry<String, String> binding : bindings.entrySet()) {
+            String value = binding.getValue();
+            int separator = value.lastIndexOf(FIELD_SEPARATOR);
+            try {
+                fields.put(binding.getKey(), Class.forName(value.substring(0, separator))
+                        .getDeclaredField(value.substring(separator + 1)));
+            } catch (ClassNotFoundException | NoSuchFieldException
+                    | StringIndexOutOfBoundsException e) {
+                HokoLog.d(e);
+                return null;
+            }
+        }
+        return fields;
+    }
+
+    private static HashMap<String, String> readBindings(ByteBuffer buffer)
+            throws UnsupportedEncodingException {
+        if (buffer.getInt(buffer.position()) < 0) {
+            buffer.getInt();
+            return null;
+        }
+        int count = readCount(buffer, MIN_BINDING_BYTES);
+        HashMap<String, String> bindings = new HashMap<>(count);
+        for (int index = 0; index < count; index++) {
+            bindings.put(readString(buffer), readString(buffer));
+        }
+        return bindings;
+    }
+
+    private static void writeBindings(DataOutputStream output, HashMap<String, Field> fields)
+            throws IOException {
+        if (fields == null) {
+            output.writeInt(-1);
+            return;
+        }
+        output.writeInt(fields.size());
+        for (Map.Entry<String, Field> field : fields.entrySet()) {
+            writeString(output, field.getKey());
+            writeString(output, field.getValue().getDeclaringClass().getName() + FIELD_SEPARATOR
+                    + field.getValue().getName());
+        }
+    }
+
+    /**
+     * Reads the number of elements which follow, making sure the remaining bytes can hold them
+     * before anything is allocated.
+     *
+     * @param buffer       The snapshot.
+     * @param elementBytes The smallest size of an element.
+     * @return The number of elements.
+     * @throws BufferUnderflowException Throws a BufferUnderflowException in case the snapshot is
+     *                                  truncated or corrupt.
+     */
+    private static int readCount(ByteBuffer buffer, int elementBytes) {
+        int count = buffer.getInt();
+        if (count < 0 || count > buffer.remaining() / elementBytes)
+            throw new BufferUnderflowException();
+        return count;
+    }
+
+    private static String readString(ByteBuffer buffer) throws UnsupportedEncodingException {
+        int length = buffer.getInt();
+        if (length < 0)
+            return null;
+        if (length > buffer.remaining())
+            throw new BufferUnderflowException();
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, "UTF-8");
+    }
+
+    private static void writeString(DataOutputStream output, String string) throws IOException {
+        if (string == null) {
+            output.writeInt(-1);
+            return;
+        }
+        byte[] bytes = string.getBytes("UTF-8");
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    private static boolean equals(String string1, String string2) {
+        return string1 == null ? string2 == null : string1.equals(string2);
+    }
+
+}
@@ -7,16 +7,21 @@ import android.support.v4.app.Fragment;
 
 import com.hokolinks.Hoko;
 import com.hokolinks.deeplinking.listeners.MetadataRequestListener;
+import com.hokolinks.model.AsyncFilterCallback;
 import com.hokolinks.model.Deeplink;
 import com.hokolinks.model.DeeplinkCallback;
 import com.hokolinks.model.IntentRouteImpl;
 import com.hokolinks.model.Route;
+import com.hokolinks.model.RouteComponent;
 import com.hokolinks.model.RouteImpl;
+import com.hokolinks.model.RouteMatch;
 import com.hokolinks.model.URL;
 import com.hokolinks.model.exceptions.DuplicateRouteException;
 import com.hokolinks.model.exceptions.InvalidRouteException;
 import com.hokolinks.model.exceptions.MultipleDefaultRoutesException;
+import com.hokolinks.utils.dispatch.MainThreadExecutor;
 import com.hokolinks.utils.log.HokoLog;
+import com.hokolinks.utils.metrics.Metrics;
 
 import org.json.JSONObject;
 
@@ -25,6 +30,8 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.Executor;
 
 /**
  * Routing contains most of the logic pertaining the mapping or routes and the opening of
@@ -32,24 +39,53 @@ import java.util.HashMap;
  */
 public class Routing {
 
-    private ArrayList<Route> mRoutes;
-    private Route mDefaultRoute;
+    // Route flexibilities, in the order they are matched
+    private static final int FIXED_LENGTH = 0;
+    private static final int OPTIONAL_LENGTH = 1;
+    private static final int CATCH_ALL = 2;
+
+    // Replaced as a whole when a route is mapped so reads take no lock
+    private volatile RouteTable mRouteTable = RouteTable.EMPTY;
+    private volatile Route mDefaultRoute;
     private String mToken;
     private Context mContext;
     private Handling mHandling;
     private Filtering mFiltering;
-    private Deeplink mCurrentDeeplink;
+    private volatile Deeplink mCurrentDeeplink;
+    private boolean mPrebuildIntents;
+    private final boolean mDebugMode;
+    private volatile Executor mDispatchExecutor = new MainThreadExecutor();
 
     public Routing(String token, Context context, Handling handling, Filtering filtering) {
+        this(token, context, handling, filtering, Hoko.isDebugMode());
+    }
+
+    /**
+     * The constructor for Routing with the debug mode, in which the mapped routes are posted to
+     * the Hoko backend service.
+     *
+     * @param token     The Hoko API Token.
+     * @param context   A context object.
+     * @param handling  The Handling instance.
+     * @param filtering The Filtering instance.
+     * @param debugMode true to post the mapped routes, false otherwise.
+     */
+    public Routing(String token, Context context, Handling handling, Filtering filtering,
+                   boolean debugMode) {
         mToken = token;
         mContext = context;
         mHandling = handling;
         mFiltering = filtering;
-        mRoutes = new ArrayList<>();
+        mDebugMode = debugMode;
     }
 
+    /**
+     * Returns a copy of the mapped routes, sorted in the order they are matched.
+     *
+     * @return A list of Route objects.
+     */
     public ArrayList<Route> getRoutes() {
-        return mRoutes;
+        return new ArrayList<>(mRouteTable.getRoutes());
     }
 
     public Deeplink getCurrentDeeplink() {
@@ -62,7 +98,7 @@ public class Routing {
      * @param route    The route in route format.
      * @param callback A DeeplinkCallback object
      */
-    public void mapRoute(String route, DeeplinkCallback callback) {
+    public synchronized void mapRoute(String route, DeeplinkCallback callback) {
         if (route != null && routeExists(route))
             HokoLog.e(new DuplicateRouteException(route));
         else
@@ -80,9 +116,9 @@ public class Routing {
      * @param queryParameters   A HashMap where the keys are the query components and the fields are
      *                          the values.
      */
-    public void mapRoute(String route, String activityClassName,
-                         HashMap<String, Field> routeParameters,
-                         HashMap<String, Field> queryParameters) {
+    public synchronized void mapRoute(String route, String activityClassName,
+                                      HashMap<String, Field> routeParameters,
+                                      HashMap<String, Field> queryParameters) {
         if (route != null && routeExists(route))
             HokoLog.e(new DuplicateRouteException(route));
         else
@@ -90,6 +126,91 @@ public class Routing {
                     routeParameters, queryParameters, mContext));
     }
 
+    /**
+     * Maps a route with a route format, an already loaded activity class, its route parameter
+     * fields and its query parameter fields to a Route inside Routing.
+     *
+     * @param route           The route in route format.
+     * @param activityClass   The activity class.
+     * @param routeParameters A HashMap where the keys are the route components and the fields are
+     *                        the values.
+     * @param queryParameters A HashMap where the keys are the query components and the fields are
+     *                        the values.
+     */
+    public synchronized void mapActivityRoute(String route, Class<?> activityClass,
+                                              HashMap<String, Field> routeParameters,
+                                              HashMap<String, Field> queryParameters) {
+        if (route != null && routeExists(route))
+            HokoLog.e(new DuplicateRouteException(route));
+        else
+            addNewRoute(new IntentRouteImpl(URL.sanitizeURL(route), activityClass.getName(),
+                    activityClass, routeParameters, queryParameters, mContext));
+    }
+
+    /**
+     * Maps a route with a route format to an activity class name, without loading the class.
+     * The class and its parameter fields are only loaded the first time the route is matched.
+     *
+     * @param route             The route in route format.
+     * @param activityClassName The activity class name.
+     */
+    public synchronized void mapLazyRoute(String route, String activityClassName) {
+        if (route != null && routeExists(route))
+            HokoLog.e(new DuplicateRouteException(route));
+        else
+            addNewRoute(new IntentRouteImpl(URL.sanitizeURL(route), activityClassName, mContext));
+    }
+
+    /**
+     * Maps a route with a route format to an activity class name and its parameter fields by
+     * name, without loading any class. The fields are only looked up the first time the route is
+     * matched.
+     *
+     * @param route                  The route in route format.
+     * @param activityClassName      The activity class name.
+     * @param routeParameterBindings A HashMap where the keys are the route components and the
+     *                               field bindings are the values.
+     * @param queryParameterBindings A HashMap where the keys are the query components and the
+     *                               field bindings are the values.
+     */
+    public synchronized void mapLazyRoute(String route, String activityClassName,
+                                          HashMap<String, String> routeParameterBindings,
+                                          HashMap<String, String> queryParameterBindings) {
+        if (route != null && routeExists(route)) {
+            HokoLog.e(new DuplicateRouteException(route));
+        } else {
+            IntentRouteImpl intentRoute = new IntentRouteImpl(URL.sanitizeURL(route),
+                    activityClassName, mContext);
+            intentRoute.setFieldBindings(routeParameterBindings, queryParameterBindings);
+            addNewRoute(intentRoute);
+        }
+    }
+
+    /**
+     * Enables or disables the prebuilt Intent templates of every activity route, including the
+     * ones mapped afterwards.
+     *
+     * @param prebuildIntents true to prebuild the Intent templates, false otherwise.
+     */
+    public synchronized void setPrebuildIntents(boolean prebuildIntents) {
+        mPrebuildIntents = prebuildIntents;
+        for (Route route : mRouteTable.getRoutes()) {
+            if (route instanceof IntentRouteImpl)
+                ((IntentRouteImpl) route).setPrebuildIntent(prebuildIntents);
+        }
+        if (mDefaultRoute instanceof IntentRouteImpl)
+            ((IntentRouteImpl) mDefaultRoute).setPrebuildIntent(prebuildIntents);
+    }
+
+    /**
+     * Sets the executor on which route callbacks and handlers are called.
+     *
+     * @param dispatchExecutor An Executor or null to call them on the main thread.
+     */
+    public void setDispatchExecutor(Executor dispatchExecutor) {
+        mDispatchExecutor = dispatchExecutor != null ? dispatchExecutor : new MainThreadExecutor();
+    }
+
     /**
      * Injects an activity object with the deeplink values from its Intent.
      * This is done by the use of Hoko annotations on the class and on its fields.
@@ -137,7 +258,7 @@ public class Routing {
             else
                 return null;
         }
-        for (Route route : mRoutes) {
+        for (Route route : mRouteTable.getRoutes()) {
             if (routeString.equalsIgnoreCase(route.getRoute()))
                 return route;
         }
@@ -161,8 +282,11 @@ public class Routing {
             return false;
         }
         HokoLog.d("Opening Deeplink " + urlString);
+        long start = Metrics.start();
         URL url = new URL(urlString);
-        return handleOpenURL(url, metadata, isDeferred);
+        boolean opened = handleOpenURL(url, metadata, isDeferred);
+        Metrics.record(Metrics.Stage.OPEN, urlString, start);
+        return opened;
     }
 
     /**
@@ -175,17 +299,23 @@ public class Routing {
      * @return true in case in opened the activity, false otherwise.
      */
     private boolean handleOpenURL(URL url, JSONObject metadata, boolean isDeferred) {
-        final Route route = routeForURL(url);
-        if (route == null) {
+        long routeMatchStart = Metrics.start();
+        RouteMatch routeMatch = matchURL(url);
+        Metrics.record(Metrics.Stage.ROUTE_MATCH,
+                routeMatch != null ? routeMatch.getRoute().getRoute() : null, routeMatchStart);
+        if (routeMatch == null) {
             openApp();
             return false;
         }
-        final Deeplink deeplink = deeplinkForURL(url, route, metadata, isDeferred);
+        final Route route = routeMatch.getRoute();
+        final Deeplink deeplink = deeplinkForURL(url, routeMatch, metadata, isDeferred);
 
         if (deeplink.needsMetadata()) {
+            final long metadataStart = Metrics.start();
             deeplink.requestMetadata(mToken, new MetadataRequestListener() {
                 @Override
                 public void completion() {
+                    Metrics.record(Metrics.Stage.METADATA, route.getRoute(), metadataStart);
                     Routing.this.openDeeplink(deeplink, route);
                 }
             });
@@ -210,22 +340,75 @@ public class Routing {
      * @param url A URL object.
      * @return Route found
      */
-    private Route routeForURL(URL url) {
-        for (Route route : mRoutes) {
-            if (url.matchesWithRoute(route) != null) {
-                return route;
+    Route routeForURL(URL url) {
+        RouteMatch routeMatch = matchURL(url);
+        return routeMatch != null ? routeMatch.getRoute() : null;
+    }
+
+    /**
+     * Matches a deeplink against the mapped routes in a single pass, first against the routes
+     * qualified by its scheme and host, then by its scheme alone and then against the unqualified
+     * routes, falling back to the default route, which captures no route parameters.
+     *
+     * @param url A URL object.
+     * @return A RouteMatch object or null in case no route matches.
+     */
+    RouteMatch matchURL(URL url) {
+        RouteTable routeTable = mRouteTable;
+        RouteMatch routeMatch = null;
+        if (url.getScheme() != null) {
+            if (url.getHost() != null) {
+                routeMatch = matchRoutes(url,
+                        routeTable.getQualifiedRoutes(url.getScheme(), url.getHost()));
             }
+            if (routeMatch == null) {
+                routeMatch = matchRoutes(url, routeTable.getQualifiedRoutes(url.getScheme(), null));
+            }
+        }
+        if (routeMatch == null) {
+            routeMatch = matchRoutes(url, routeTable.getUnqualifiedRoutes());
+        }
+        if (routeMatch != null) {
+            return routeMatch;
         }
 
-        if (mDefaultRoute != null) {
-            return mDefaultRoute;
+        Route defaultRoute = mDefaultRoute;
+        if (defaultRoute != null && isResolved(defaultRoute)) {
+            return new RouteMatch(defaultRoute, null);
         }
         return null;
     }
 
-    private Deeplink deeplinkForURL(URL url, Route route, JSONObject metadata, boolean isDeferred) {
-        return new Deeplink(url.getScheme(), route.getRoute(), url.matchesWithRoute(route),
-                url.getQueryParameters(), metadata, url.getURL(), isDeferred, false);
+    private RouteMatch matchRoutes(URL url, List<Route> routes) {
+        if (routes == null) {
+            return null;
+        }
+        for (Route route : routes) {
+            RouteMatch routeMatch = url.match(route);
+            if (routeMatch != null && isResolved(route)) {
+                return routeMatch;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Makes sure a lazily registered route has its activity class and parameter fields loaded
+     * before it is opened.
+     *
+     * @param route A Route object.
+     * @return true if the route is resolved and valid, false otherwise.
+     */
+    private boolean isResolved(Route route) {
+        return !(route instanceof IntentRouteImpl)
+                || AnnotationParser.resolveRoute((IntentRouteImpl) route);
+    }
+
+    private Deeplink deeplinkForURL(URL url, RouteMatch routeMatch, JSONObject metadata,
+                                    boolean isDeferred) {
+        return new Deeplink(url.getScheme(), routeMatch.getRoute().getRoute(),
+                routeMatch.getRouteParameters(), url.getQueryParameters(), metadata, url.getURL(),
+                isDeferred, false);
     }
 
     protected boolean openCurrentDeeplink() {
@@ -239,23 +422,94 @@ public class Routing {
         return openDeeplink(deeplink, routeForDeeplink(deeplink));
     }
 
-    private boolean openDeeplink(Deeplink deeplink, Route route) {
+    private boolean openDeeplink(final Deeplink deeplink, final Route route) {
         mCurrentDeeplink = deeplink;
-        if (mFiltering.filter(deeplink)) {
+        final long filterStart = Metrics.start();
+        if (!mFiltering.hasAsyncFilters()) {
+            boolean filtered = mFiltering.filter(deeplink);
+            Metrics.record(Metrics.Stage.FILTER, deeplink.getRoute(), filterStart);
+            return openFilteredDeeplink(deeplink, route, filtered);
+        }
+        mFiltering.filter(deeplink, new AsyncFilterCallback.FilterDecision() {
+            @Override
+            public void decide(final boolean openDeeplink) {
+                Metrics.record(Metrics.Stage.FILTER, deeplink.getRoute(), filterStart);
+                mDispatchExecutor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        dispatchFilteredDeeplink(deeplink, route, openDeeplink);
+                    }
+                });
+            }
+        });
+        return route != null;
+    }
+
+    /**
+     * Opens a deeplink once the filters have decided whether it should be opened, opening the app
+     * instead in case it should not.
+     *
+     * @param deeplink A Deeplink object.
+     * @param route    The Route matching the deeplink or null.
+     * @param filtered true in case the filters let the deeplink through, false otherwise.
+     * @return true in case the deeplink has a route to be opened, false otherwise.
+     */
+    private boolean openFilteredDeeplink(final Deeplink deeplink, final Route route,
+                                         boolean filtered) {
+        if (filtered) {
 
             deeplink.post(mToken, mContext);
-            mHandling.handle(deeplink);
-            if (route != null) {
-                route.execute(deeplink);
-                deeplink.setWasOpened(true);
-                return true;
-            }
+            mDispatchExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    dispatchDeeplink(deeplink, route);
+                }
+            });
+            return route != null;
         } else {
             openApp();
         }
         return false;
     }
 
+    /**
+     * Opens a deeplink once the asynchronous filters have decided whether it should be opened,
+     * opening the app instead in case it should not. Called on the dispatch executor, as the
+     * decision is taken on the thread of the filter which decided or of its deadline.
+     *
+     * @param deeplink A Deeplink object.
+     * @param route    The Route matching the deeplink or null.
+     * @param filtered true in case the filters let the deeplink through, false otherwise.
+     */
+    private void dispatchFilteredDeeplink(Deeplink deeplink, Route route, boolean filtered) {
+        if (filtered) {
+            deeplink.post(mToken, mContext);
+            dispatchDeeplink(deeplink, route);
+        } else {
+            openApp();
+        }
+    }
+
+    /**
+     * Calls the synchronous handlers, executes the route of an opened deeplink and then hands it to
+     * the asynchronous handlers, on the dispatch executor.
+     *
+     * @param deeplink A Deeplink object.
+     * @param route    The Route matching the deeplink or null.
+     */
+    private void dispatchDeeplink(Deeplink deeplink, Route route) {
+        long handleStart = Metrics.start();
+        mHandling.handle(deeplink);
+        Metrics.record(Metrics.Stage.HANDLE, deeplink.getRoute(), handleStart);
+        if (route != null) {
+            long executeStart = Metrics.start();
+            route.execute(deeplink);
+            Metrics.record(Metrics.Stage.EXECUTE, route.getRoute(), executeStart);
+            deeplink.setWasOpened(true);
+        }
+        mHandling.handleAsynchronously(deeplink);
+    }
+
 
     /**
      * Function to add a new Route to the routes list (or as a default route).
@@ -263,7 +517,7 @@ public class Routing {
      *
      * @param route A Route object.
      */
-    private void addNewRoute(RouteImpl route) {
+    private synchronized void addNewRoute(RouteImpl route) {
         if (route.getRoute() == null || route.getRoute().length() == 0) {
             if (mDefaultRoute == null) {
                 mDefaultRoute = route;
@@ -271,9 +525,8 @@ public class Routing {
                 HokoLog.e(new MultipleDefaultRoutesException(route.getClass().getCanonicalName()));
             }
         } else {
-            mRoutes.add(route);
-            sortRoutes();
-            if (Hoko.isDebugMode())
+            publishRoute(route);
+            if (mDebugMode)
                 route.post(mToken, mContext);
 
         }
@@ -285,7 +538,9 @@ public class Routing {
      *
      * @param intentRoute A Route object.
      */
-    private void addNewRoute(IntentRouteImpl intentRoute) {
+    private synchronized void addNewRoute(IntentRouteImpl intentRoute) {
+        if (mPrebuildIntents)
+            intentRoute.setPrebuildIntent(true);
         if (intentRoute.getRoute() == null || intentRoute.getRoute().length() == 0) {
             if (mDefaultRoute == null) {
                 mDefaultRoute = intentRoute;
@@ -294,9 +549,8 @@ public class Routing {
             }
         } else {
             if (intentRoute.isValid()) {
-                mRoutes.add(intentRoute);
-                sortRoutes();
-                if (Hoko.isDebugMode())
+                publishRoute(intentRoute);
+                if (mDebugMode)
                     intentRoute.post(mToken, mContext);
             } else {
                 HokoLog.e(new InvalidRouteException(intentRoute.getActivityClassName(),
@@ -316,7 +570,7 @@ public class Routing {
         if (route == null) {
             return mDefaultRoute != null;
         }
-        for (Route routeObj : mRoutes) {
+        for (Route routeObj : mRouteTable.getRoutes()) {
             if (routeObj.getRoute().compareToIgnoreCase(URL.sanitizeURL(route)) == 0)
                 return true;
         }
@@ -324,7 +578,7 @@ public class Routing {
     }
 
     private Route routeForDeeplink(Deeplink deeplink) {
-        for (Route route : mRoutes) {
+        for (Route route : mRouteTable.getRoutes()) {
             if (route.getRoute().equals(deeplink.getRoute())) {
                 return route;
             }
@@ -332,30 +586,58 @@ public class Routing {
         return null;
     }
 
-    private void sortRoutes() {
-        Collections.sort(mRoutes, new Comparator<Route>() {
+    /**
+     * Publishes a new RouteTable containing a given route. Must be called while holding the lock
+     * on the Routing.
+     *
+     * @param route A Route object.
+     */
+    private void publishRoute(Route route) {
+        mRouteTable = mRouteTable.with(route);
+    }
+
+    /**
+     * Sorts routes in the order they are matched. Routes of a fixed length come first, shorter
+     * ones first, followed by routes with optional route parameters and finally by catch-all
+     * routes, both of them longer (more specific) ones first. Among routes of the same length,
+     * routes with parameters come after routes without them, and unconstrained parameters after
+     * constrained ones.
+     *
+     * @param routes A list of Route objects.
+     */
+    static void sortRoutes(List<Route> routes) {
+        Collections.sort(routes, new Comparator<Route>() {
             @Override
             public int compare(Route route1, Route route2) {
-                if (route1.getComponents().size() != route2.getComponents().size()) {
-                    return route1.getComponents().size() - route2.getComponents().size();
+                List<RouteComponent> components1 = route1.getRouteComponents();
+                List<RouteComponent> components2 = route2.getRouteComponents();
+                int flexibility1 = flexibility(components1);
+                int flexibility2 = flexibility(components2);
+                if (flexibility1 != flexibility2) {
+                    return flexibility1 - flexibility2;
+                }
+                if (components1.size() != components2.size()) {
+                    return flexibility1 == FIXED_LENGTH
+                            ? components1.size() - components2.size()
+                            : components2.size() - components1.size();
                 }
 
-                for (int index = 0; index < route1.getComponents().size(); index++) {
-                    String component1 = route1.getComponents().get(index);
-                    String component2 = route2.getComponents().get(index);
-
-                    boolean component1IsParameter = component1.startsWith(":");
-                    boolean component2IsParameter = component2.startsWith(":");
+                for (int index = 0; index < components1.size(); index++) {
+                    RouteComponent component1 = components1.get(index);
+                    RouteComponent component2 = components2.get(index);
 
-                    if (component1IsParameter && component2IsParameter) {
-                        continue;
+                    if (component1.isParameter() && component2.isParameter()) {
+                        if (component1.isConstrained() == component2.isConstrained()) {
+                            continue;
+                        }
+                        return component1.isConstrained() ? -1 : 1;
                     }
 
-                    if (component1IsParameter) {
+                    if (component1.isParameter()) {
                         return 1;
                     }
 
-                    if (component2IsParameter) {
+                    if (component2.isParameter()) {
                         return -1;
                     }
                 }
@@ -363,4 +645,15 @@ public class Routing {
             }
         });
     }
+
+    private static int flexibility(List<RouteComponent> routeComponents) {
+        int count = routeComponents.size();
+        if (count == 0) {
+            return FIXED_LENGTH;
+        }
+        if (routeComponents.get(count - 1).isCatchAll()) {
+            return CATCH_ALL;
+        }
+        return routeComponents.get(count - 1).isOptional() ? OPTIONAL_LENGTH : FIXED_LENGTH;
+    }
 }
@@ -84,6 +84,24 @@ public class App {
         return null;
     }
 
+    /**
+     * Returns when the application Hoko is being run on was last installed or updated, which
+     * changes on every install even if the version code does not.
+     *
+     * @param context A context object.
+     * @return The last update time in milliseconds since the epoch, or 0 in case it is unknown.
+     */
+    public static long getLastUpdateTime(Context context) {
+        try {
+            PackageInfo packageInfo = context.getPackageManager().getPackageInfo(
+                    context.getPackageName(), 0);
+            return packageInfo.lastUpdateTime;
+        } catch (Exception exception) {
+            HokoLog.e(exception);
+        }
+        return 0;
+    }
+
     /**
      * Converts all the App information into a JSONObject to be sent to the Hoko backend
      * service.
@@ -134,7 +152,17 @@ public class App {
      * @return The environment string.
      */
     public static String getEnvironment(Context context) {
-        return isDebug(context) ? ENVIRONMENT_DEBUG : ENVIRONMENT_RELEASE;
+        return getEnvironment(isDebug(context));
+    }
+
+    /**
+     * Returns the environment for a given debug mode.
+     *
+     * @param debug true if the application is in debug mode, false otherwise.
+     * @return The environment string.
+     */
+    static String getEnvironment(boolean debug) {
+        return debug ? ENVIRONMENT_DEBUG : ENVIRONMENT_RELEASE;
     }
 
     /**
@@ -0,0 +1,24 @@
+package com.hokolinks.model;
+
+/**
+ * A filter which decides whether a deeplink should be opened asynchronously, e.g. after checking
+ * a login state on disk or a feature flag store. It is called on a background thread and must
+ * hand its decision to the FilterDecision exactly once.
+ */
+public interface AsyncFilterCallback {
+
+    void openDeeplink(Deeplink deeplink, FilterDecision decision);
+
+    /**
+     * Receives the decision of an AsyncFilterCallback.
+     */
+    interface FilterDecision {
+
+        /**
+         * @param openDeeplink true if the deeplink should be opened, false otherwise.
+         */
+        void decide(boolean openDeeplink);
+
+    }
+
+}
@@ -0,0 +1,94 @@
+package com.hokolinks.model;
+
+import android.content.Context;
+
+import com.hokolinks.Hoko;
+
+/**
+ * ClientInfo is an immutable snapshot of the App and Device information sent along with every
+ * request to the Hoko backend service. Finding the BuildConfig class and querying the
+ * PackageManager is done only once per process, when the snapshot is first requested.
+ */
+public final class ClientInfo {
+
+    private static volatile ClientInfo sInstance;
+
+    private final boolean mDebug;
+    private final String mEnvironment;
+    private final String mVersion;
+    private final String mVersionCode;
+    private final long mLastUpdateTime;
+    private final String mDevice;
+    private final String mUserAgent;
+
+    private ClientInfo(Context context) {
+        mDebug = App.isDebug(context);
+        mEnvironment = App.getEnvironment(mDebug);
+        mVersion = App.getVersion(context);
+        mVersionCode = App.getVersionCode(context);
+        mLastUpdateTime = App.getLastUpdateTime(context);
+        mDevice = Device.getVendor() + " " + Device.getModel();
+        mUserAgent = "HOKO/" + Hoko.VERSION + " (" + mEnvironment + "; Linux; "
+                + Device.getPlatform() + " " + Device.getSystemReleaseVersion() + "; " + mDevice
+                + " Build/" + Device.getBuildNumber() + ")";
+    }
+
+    /**
+     * Returns the ClientInfo snapshot, creating it on the first call.
+     *
+     * @param context A context object.
+     * @return The ClientInfo snapshot.
+     */
+    public static ClientInfo get(Context context) {
+        ClientInfo clientInfo = sInstance;
+        if (clientInfo == null) {
+            synchronized (ClientInfo.class) {
+                clientInfo = sInstance;
+                if (clientInfo == null) {
+                    clientInfo = new ClientInfo(context);
+                    sInstance = clientInfo;
+                }
+            }
+        }
+        return clientInfo;
+    }
+
+    public boolean isDebug() {
+        return mDebug;
+    }
+
+    public String getEnvironment() {
+        return mEnvironment;
+    }
+
+    public String getVersion() {
+        return mVersion;
+    }
+
+    public String getVersionCode() {
+        return mVersionCode;
+    }
+
+    /**
+     * Returns when the application was last installed or updated.
+     *
+     * @return The last update time in milliseconds since the epoch, or 0 in case it is unknown.
+     */
+    public long getLastUpdateTime() {
+        return mLastUpdateTime;
+    }
+
+    /**
+     * Returns the vendor and model of the device, e.g. "LGE Nexus 5".
+     *
+     * @return The device description.
+     */
+    public String getDevice() {
+        return mDevice;
+    }
+
+    public String getUserAgent() {
+        return mUserAgent;
+    }
+
+}
@@ -16,6 +16,7 @@ import org.json.JSONObject;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Deeplink is the model which represents an inbound or outbound deeplink object.
@@ -40,6 +41,8 @@ public class Deeplink {
     private boolean mIsDeferred;
     private boolean mWasOpened;
     private boolean mIsUnique;
+    private String[] mRouteComponents;
+    private String[] mRouteParameterNames;
 
     /**
      * The constructor for Deeplink objects.
@@ -172,8 +175,9 @@ public class Deeplink {
         for (int index = 0; index < routeComponents.size(); index++) {
             String routeComponent = routeComponents.get(index);
 
-            if (routeComponent.startsWith(":") && routeComponent.length() > 2) {
-                String token = routeComponent.substring(1);
+            if (routeComponent.startsWith(":") && routeComponent.length() > 2
+                    && !RouteComponent.isOptional(routeComponent)) {
+                String token = RouteComponent.parameterName(routeComponent);
                 if (!routeParameters.containsKey(token)) {
                     return false;
                 }
@@ -240,7 +244,8 @@ public class Deeplink {
             Networking.getNetworking().addRequest(
                     new HttpRequest(HttpRequest.HokoNetworkOperationType.POST,
                             "smartlinks/open", token,
-                            smartlinkJSON(context).toString()));
+                            smartlinkJSON(context).toString(),
+                            HttpRequest.HokoNetworkPriority.HIGH));
         }
 
     }
@@ -274,23 +279,86 @@ public class Deeplink {
         }
     }
 
+    /**
+     * Builds the deeplink URL out of the route, filling the route parameters by position and
+     * appending the query parameters, all of them percent-encoded. Route parameters which were
+     * not provided are left as they are in route format, except optional ones, which end the path.
+     *
+     * @return The deeplink URL (e.g. "product/30?ref=home"), null in case there is no route.
+     */
     public String getURL() {
-        String url = this.getRoute();
-        if (this.getRouteParameters() != null) {
-            for (String routeParameterKey : this.getRouteParameters().keySet()) {
-                url = url.replace(":" + routeParameterKey, this.getRouteParameters()
-                        .get(routeParameterKey));
+        if (mRoute == null) {
+            return null;
+        }
+        String[] routeParameterNames = getRouteParameterNames();
+        StringBuilder url = new StringBuilder(mRoute.length()
+                + 16 * (mRouteParameters.size() + mQueryParameters.size()));
+        for (int index = 0; index < mRouteComponents.length; index++) {
+            if (index > 0) {
+                url.append('/');
+            }
+            String value = routeParameterNames[index] != null
+                    ? mRouteParameters.get(routeParameterNames[index]) : null;
+            if (value == null && RouteComponent.isOptional(mRouteComponents[index])) {
+                url.setLength(index > 0 ? url.length() - 1 : 0);
+                break;
+            }
+            if (value == null) {
+                url.append(mRouteComponents[index]);
+            } else if (RouteComponent.isCatchAll(mRouteComponents[index])) {
+                appendEncodedPath(url, value);
+            } else {
+                Utils.appendEncoded(url, value, false);
             }
         }
-        if (this.getRouteParameters() != null && this.getQueryParameters().size() > 0) {
-            url = url + "?";
-            for (String queryParameterKey : this.getQueryParameters().keySet()) {
-                url = url + queryParameterKey + "=" + this.getQueryParameters()
-                        .get(queryParameterKey) + "&";
+        char separator = '?';
+        for (Map.Entry<String, String> queryParameter : mQueryParameters.entrySet()) {
+            url.append(separator);
+            Utils.appendEncoded(url, queryParameter.getKey(), true);
+            url.append('=');
+            if (queryParameter.getValue() != null) {
+                Utils.appendEncoded(url, queryParameter.getValue(), true);
+            }
+            separator = '&';
+        }
+        return url.toString();
+    }
+
+    /**
+     * Percent-encodes the path captured by a catch-all, keeping its '/' separators.
+     *
+     * @param builder The StringBuilder to append to.
+     * @param path    The captured path, e.g. "billing/refunds".
+     */
+    private static void appendEncodedPath(StringBuilder builder, String path) {
+        int start = 0;
+        int separator;
+        while ((separator = path.indexOf('/', start)) != -1) {
+            Utils.appendEncoded(builder, path.substring(start, separator), false);
+            builder.append('/');
+            start = separator + 1;
+        }
+        Utils.appendEncoded(builder, path.substring(start), false);
+    }
+
+    /**
+     * Splits the route into components once, keeping the parameter name of each component in
+     * the same position, or null in case the component is not a route parameter.
+     *
+     * @return The route parameter names by position.
+     */
+    private String[] getRouteParameterNames() {
+        if (mRouteParameterNames == null) {
+            String[] routeComponents = mRoute.split("/");
+            String[] routeParameterNames = new String[routeComponents.length];
+            for (int index = 0; index < routeComponents.length; index++) {
+                String routeComponent = routeComponents[index];
+                routeParameterNames[index] = RouteComponent.parameterName(routeComponent);
             }
-            url = url.substring(0, url.length() - 1);
+            mRouteComponents = routeComponents;
+            mRouteParameterNames = routeParameterNames;
         }
-        return url;
+        return mRouteParameterNames;
     }
 
     /**
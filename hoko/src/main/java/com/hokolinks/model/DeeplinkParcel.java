@@ -0,0 +1,190 @@
+package com.hokolinks.model;
+
+import android.os.Bundle;
+import android.os.Parcel;
+import android.os.Parcelable;
+
+import com.hokolinks.utils.log.HokoLog;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.Map;
+
+/**
+ * DeeplinkParcel is the compact form in which a Deeplink travels inside an Intent or a Fragment's
+ * arguments. Route and query parameters are kept as flat key/value arrays instead of nested
+ * Bundles, and the metadata is only converted to or from its String form when it is actually
+ * needed, either by the Parcel or by the object being injected.
+ */
+public class DeeplinkParcel implements Parcelable {
+
+    public static final Creator<DeeplinkParcel> CREATOR = new Creator<DeeplinkParcel>() {
+        @Override
+        public DeeplinkParcel createFromParcel(Parcel parcel) {
+            return new DeeplinkParcel(parcel.readString(), parcel.createStringArray(),
+                    parcel.createStringArray(), parcel.readString(), null);
+        }
+
+        @Override
+        public DeeplinkParcel[] newArray(int size) {
+            return new DeeplinkParcel[size];
+        }
+    };
+
+    private final String mRoute;
+    private final String[] mRouteParameters;
+    private final String[] mQueryParameters;
+    private String mMetadataString;
+    private JSONObject mMetadata;
+
+    /**
+     * Creates the parcelable form of a Deeplink, which is to be opened on a given route.
+     *
+     * @param route    The route in route format.
+     * @param deeplink A Deeplink object.
+     */
+    public DeeplinkParcel(String route, Deeplink deeplink) {
+        this(route, flatten(deeplink.getRouteParameters()),
+                flatten(deeplink.getQueryParameters()), null, deeplink.getMetadata());
+    }
+
+    private DeeplinkParcel(String route, String[] routeParameters, String[] queryParameters,
+                           String metadataString, JSONObject metadata) {
+        mRoute = route;
+        mRouteParameters = routeParameters != null ? routeParameters : new String[0];
+        mQueryParameters = queryParameters != null ? queryParameters : new String[0];
+        mMetadataString = metadataString;
+        mMetadata = metadata;
+    }
+
+    /**
+     * Creates a DeeplinkParcel out of the nested Bundles used by previous versions of the SDK, so
+     * that intents and arguments built that way can still be injected.
+     *
+     * @param route                 The route in route format.
+     * @param routeParametersBundle A bundle containing the route parameters.
+     * @param queryParametersBundle A bundle containing the query parameters.
+     * @param metadata              The metadata in String form.
+     * @return A DeeplinkParcel or null in case any of the values is missing.
+     */
+    public static DeeplinkParcel fromBundles(String route, Bundle routeParametersBundle,
+                                             Bundle queryParametersBundle, String metadata) {
+        if (route == null || routeParametersBundle == null || queryParametersBundle == null) {
+            return null;
+        }
+        return new DeeplinkParcel(route, flatten(routeParametersBundle),
+                flatten(queryParametersBundle), metadata, null);
+    }
+
+    /**
+     * Writes the route parameters, query parameters and metadata as the nested Bundles used by
+     * previous versions of the SDK, which are still read by apps through the deprecated
+     * IntentRouteImpl keys. They will no longer be written in the next release.
+     *
+     * @param bundle The bundle of extras or arguments to write to.
+     */
+    @SuppressWarnings("deprecation")
+    public void writeLegacyBundles(Bundle bundle) {
+        bundle.putBundle(IntentRouteImpl.ROUTE_PARAMETERS_BUNDLE_KEY, toBundle(mRouteParameters));
+        bundle.putBundle(IntentRouteImpl.QUERY_PARAMETERS_BUNDLE_KEY, toBundle(mQueryParameters));
+        String metadataString = getMetadataString();
+        if (metadataString != null)
+            bundle.putString(IntentRouteImpl.METADATA_KEY, metadataString);
+    }
+
+    private static String[] flatten(Map<String, String> map) {
+        String[] array = new String[map.size() * 2];
+        int index = 0;
+        for (Map.Entry<String, String> entry : map.entrySet()) {
+            array[index++] = entry.getKey();
+            array[index++] = entry.getValue();
+        }
+        return array;
+    }
+
+    private static String[] flatten(Bundle bundle) {
+        String[] array = new String[bundle.keySet().size() * 2];
+        int index = 0;
+        for (String key : bundle.keySet()) {
+            array[index++] = key;
+            array[index++] = bundle.getString(key);
+        }
+        return array;
+    }
+
+    private static Bundle toBundle(String[] array) {
+        Bundle bundle = new Bundle();
+        for (int index = 0; index < array.length; index += 2) {
+            bundle.putString(array[index], array[index + 1]);
+        }
+        return bundle;
+    }
+
+    private static String valueForKey(String[] array, String key) {
+        for (int index = 0; index < array.length; index += 2) {
+            if (key.equals(array[index])) {
+                return array[index + 1];
+            }
+        }
+        return null;
+    }
+
+    public String getRoute() {
+        return mRoute;
+    }
+
+    public String getRouteParameter(String key) {
+        return valueForKey(mRouteParameters, key);
+    }
+
+    public String getQueryParameter(String key) {
+        return valueForKey(mQueryParameters, key);
+    }
+
+    public boolean hasMetadata() {
+        return mMetadata != null || mMetadataString != null;
+    }
+
+    /**
+     * Returns the metadata, parsing it from its String form only the first time it is needed.
+     *
+     * @return The metadata JSONObject or null.
+     */
+    public synchronized JSONObject getMetadata() {
+        if (mMetadata == null && mMetadataString != null) {
+            try {
+                mMetadata = new JSONObject(mMetadataString);
+            } catch (JSONException e) {
+                HokoLog.e(e);
+            }
+        }
+        return mMetadata;
+    }
+
+    /**
+     * Returns the metadata in String form, converting it only the first time it is needed.
+     *
+     * @return The metadata String or null.
+     */
+    public synchronized String getMetadataString() {
+        if (mMetadataString == null && mMetadata != null) {
+            mMetadataString = mMetadata.toString();
+        }
+        return mMetadataString;
+    }
+
+    @Override
+    public int describeContents() {
+        return 0;
+    }
+
+    @Override
+    public void writeToParcel(Parcel parcel, int flags) {
+        parcel.writeString(mRoute);
+        parcel.writeStringArray(mRouteParameters);
+        parcel.writeStringArray(mQueryParameters);
+        parcel.writeString(getMetadataString());
+    }
+
+}
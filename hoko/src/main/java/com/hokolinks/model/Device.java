@@ -1,9 +1,17 @@
 package com.hokolinks.model;
 
 import android.Manifest;
+import android.annotation.TargetApi;
+import android.content.BroadcastReceiver;
 import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
 import android.net.ConnectivityManager;
+import android.net.Network;
+import android.net.NetworkCapabilities;
 import android.net.NetworkInfo;
+import android.net.NetworkRequest;
+import android.os.AsyncTask;
 import android.os.Build;
 
 import com.hokolinks.utils.Utils;
@@ -23,11 +31,16 @@ public class Device {
     // Shared preferences keys
     private static final String UUID_KEY = "UUID";
 
-    // String values for connectivity state
-    private static final String CONNECTIVITY_WIFI = "Wifi";
-    private static final String CONNECTIVITY_CELLULAR = "Cellular";
-    private static final String CONNECTIVITY_NO_CONNECTIVITY = "No Connectivity";
-    private static final String CONNECTIVITY_NO_PERMISSION = "No Permission";
+    // Cached connectivity state, kept current by a network callback or a broadcast receiver
+    private static volatile HokoConnectivity sConnectivity;
+    private static boolean sMonitoringConnectivity;
+
+    // Memoized ACCESS_NETWORK_STATE permission check
+    private static volatile Boolean sNetworkStatePermission;
+
+    // Device ID, held in memory after it is first read or generated
+    private static final Object sDeviceIDLock = new Object();
+    private static volatile String sDeviceID;
 
     /**
      * Returns the vendor of the device Hoko is being run on.
@@ -90,14 +103,33 @@ public class Device {
         return buildNumber;
     }
     /**
-     * Returns the current internet connectivity of the device Hoko is being run on.
+     * Returns the current internet connectivity of the device Hoko is being run on. The state is
+     * queried once and then kept current by listening to connectivity changes, so this is cheap
+     * enough to be called on every flush.
      *
      * @param context A context object.
      * @return The current internet connectivity of the device.
      */
-    public static String getInternetConnectivity(Context context) {
+    public static HokoConnectivity getInternetConnectivity(Context context) {
+        HokoConnectivity connectivity = sConnectivity;
+        if (connectivity == null) {
+            connectivity = updateInternetConnectivity(context);
+            startMonitoringConnectivity(context);
+        }
+        return connectivity;
+    }
+
+    /**
+     * Queries the current internet connectivity of the device Hoko is being run on, updating the
+     * cached state.
+     *
+     * @param context A context object.
+     * @return The current internet connectivity of the device.
+     */
+    public static HokoConnectivity updateInternetConnectivity(Context context) {
+        HokoConnectivity connectivity;
         try {
-            if (Utils.hasPermission(Manifest.permission.ACCESS_NETWORK_STATE, context)) {
+            if (hasNetworkStatePermission(context)) {
                 ConnectivityManager connManager = (ConnectivityManager) context
                         .getSystemService(Context.CONNECTIVITY_SERVICE);
                 NetworkInfo mWifi = connManager
@@ -105,18 +137,20 @@ public class Device {
                 NetworkInfo mNetwork = connManager
                         .getNetworkInfo(ConnectivityManager.TYPE_MOBILE);
                 if (mWifi != null && mWifi.isConnected()) {
-                    return CONNECTIVITY_WIFI;
+                    connectivity = HokoConnectivity.WIFI;
                 } else if (mNetwork != null && mNetwork.isConnected()) {
-                    return CONNECTIVITY_CELLULAR;
+                    connectivity = HokoConnectivity.CELLULAR;
                 } else {
-                    return CONNECTIVITY_NO_CONNECTIVITY;
+                    connectivity = HokoConnectivity.NO_CONNECTIVITY;
                 }
             } else {
-                return CONNECTIVITY_NO_PERMISSION;
+                connectivity = HokoConnectivity.NO_PERMISSION;
             }
         } catch (Exception e) {
-            return CONNECTIVITY_NO_CONNECTIVITY;
+            connectivity = HokoConnectivity.NO_CONNECTIVITY;
         }
+        sConnectivity = connectivity;
+        return connectivity;
     }
 
     /**
@@ -126,28 +160,147 @@ public class Device {
      * @return true if the device has internet connectivity and false otherwise.
      */
     public static boolean hasInternetConnectivity(Context context) {
-        String internetConnectivity = getInternetConnectivity(context);
-        return internetConnectivity.equals(CONNECTIVITY_CELLULAR)
-                || internetConnectivity.equals(CONNECTIVITY_WIFI)
-                || internetConnectivity.equals(CONNECTIVITY_NO_PERMISSION);
+        return getInternetConnectivity(context) != HokoConnectivity.NO_CONNECTIVITY;
+    }
+
+    /**
+     * Checks whether the application has the ACCESS_NETWORK_STATE permission, which can not change
+     * for the life of the process and is therefore only checked once.
+     *
+     * @param context A context object.
+     * @return true if the permission is granted, false otherwise.
+     */
+    private static boolean hasNetworkStatePermission(Context context) {
+        Boolean networkStatePermission = sNetworkStatePermission;
+        if (networkStatePermission == null) {
+            networkStatePermission = Utils.hasPermission(Manifest.permission.ACCESS_NETWORK_STATE,
+                    context);
+            sNetworkStatePermission = networkStatePermission;
+        }
+        return networkStatePermission;
+    }
+
+    /**
+     * Starts listening to connectivity changes to keep the cached state current, with a network
+     * callback on Lollipop and above and a connectivity change broadcast receiver otherwise.
+     *
+     * @param context A context object.
+     */
+    private static synchronized void startMonitoringConnectivity(Context context) {
+        if (sMonitoringConnectivity || !hasNetworkStatePermission(context)) {
+            return;
+        }
+        try {
+            final Context applicationContext = context.getApplicationContext();
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+                registerNetworkCallback(applicationContext);
+            } else {
+                applicationContext.registerReceiver(new BroadcastReceiver() {
+                    @Override
+                    public void onReceive(Context context, Intent intent) {
+                        updateInternetConnectivity(applicationContext);
+                    }
+                }, new IntentFilter(ConnectivityManager.CONNECTIVITY_ACTION));
+            }
+            sMonitoringConnectivity = true;
+        } catch (RuntimeException e) {
+            HokoLog.e(e);
+        }
+    }
+
+    @TargetApi(Build.VERSION_CODES.LOLLIPOP)
+    private static void registerNetworkCallback(Context context) {
+        ConnectivityManager connManager = (ConnectivityManager) context
+                .getSystemService(Context.CONNECTIVITY_SERVICE);
+        NetworkRequest networkRequest = new NetworkRequest.Builder()
+                .addCapability(NetworkCapabilities.NET_CAPABILITY_INTERNET)
+                .build();
+        connManager.registerNetworkCallback(networkRequest, new ConnectivityCallback(context));
+    }
+
+    /**
+     * Forgets the cached connectivity state and permission check, so they are queried again and
+     * the connectivity changes are listened to on the next call.
+     */
+    static synchronized void resetConnectivity() {
+        sConnectivity = null;
+        sNetworkStatePermission = null;
+        sMonitoringConnectivity = false;
+    }
+
+    /**
+     * Updates the cached connectivity state whenever a network is available or lost.
+     */
+    @TargetApi(Build.VERSION_CODES.LOLLIPOP)
+    static class ConnectivityCallback extends ConnectivityManager.NetworkCallback {
+
+        private final Context mContext;
+
+        ConnectivityCallback(Context context) {
+            mContext = context;
+        }
+
+        @Override
+        public void onAvailable(Network network) {
+            updateInternetConnectivity(mContext);
+        }
+
+        @Override
+        public void onLost(Network network) {
+            updateInternetConnectivity(mContext);
+        }
     }
 
     /**
      * Returns a one-time generated device ID which is saved in the shared preferences for later
      * usage. This guarantees it is unique but will not persist when the application is reinstalled.
+     * The shared preferences are only read until the device ID is held in memory, and the lock is
+     * only held to publish it, never while reading or saving.
      *
      * @param context A context object.
      * @return The one-time generated device ID.
      */
-    public static synchronized String getDeviceID(Context context) {
-        String uid = Utils.getString(UUID_KEY, context);
+    public static String getDeviceID(Context context) {
+        String uid = sDeviceID;
+        if (uid != null) {
+            return uid;
+        }
+        uid = Utils.getString(UUID_KEY, context);
+        boolean generated = false;
         if (uid == null) {
             uid = Utils.generateUUID();
+            generated = true;
+        }
+        synchronized (sDeviceIDLock) {
+            if (sDeviceID != null) {
+                return sDeviceID;
+            }
+            sDeviceID = uid;
+        }
+        if (generated) {
             Utils.saveString(uid, UUID_KEY, context);
         }
         return uid;
     }
 
+    /**
+     * Reads or generates the device ID on a background thread, so opening deeplinks does not have
+     * to wait for the shared preferences.
+     *
+     * @param context A context object.
+     */
+    public static void warmUpDeviceID(final Context context) {
+        if (sDeviceID != null) {
+            return;
+        }
+        AsyncTask.THREAD_POOL_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                getDeviceID(context);
+            }
+        });
+    }
+
     /**
      * Converts all the Device information into a JSONObject to be sent to the Hoko backend
      * service.
@@ -170,4 +323,23 @@ public class Device {
         return null;
     }
 
+    /**
+     * The internet connectivity states of a device.
+     */
+    public enum HokoConnectivity {
+        WIFI("Wifi"), CELLULAR("Cellular"), NO_CONNECTIVITY("No Connectivity"),
+        NO_PERMISSION("No Permission");
+
+        private final String mName;
+
+        HokoConnectivity(String name) {
+            mName = name;
+        }
+
+        @Override
+        public String toString() {
+            return mName;
+        }
+    }
+
 }
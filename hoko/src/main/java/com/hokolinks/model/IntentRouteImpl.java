@@ -20,14 +20,37 @@ public class IntentRouteImpl extends Route {
 
     // Keys for the Intent.putExtras(...)
     public static final String BUNDLE_KEY = "HokoRoute";
+    /**
+     * @deprecated Read the route parameters from the DeeplinkParcel under {@link #DEEPLINK_KEY}.
+     * This extra will no longer be written in the next release.
+     */
+    @Deprecated
     public static final String ROUTE_PARAMETERS_BUNDLE_KEY = "HokoRouteParameters";
+    /**
+     * @deprecated Read the query parameters from the DeeplinkParcel under {@link #DEEPLINK_KEY}.
+     * This extra will no longer be written in the next release.
+     */
+    @Deprecated
     public static final String QUERY_PARAMETERS_BUNDLE_KEY = "HokoQueryParameters";
+    /**
+     * @deprecated Read the metadata from the DeeplinkParcel under {@link #DEEPLINK_KEY}.
+     * This extra will no longer be written in the next release.
+     */
+    @Deprecated
     public static final String METADATA_KEY = "HokoMetadata";
+    public static final String DEEPLINK_KEY = "HokoDeeplink";
 
     private Context mContext;
     private String mActivityClassName;
+    private volatile Class<?> mActivityClass;
+    private volatile Intent mIntentTemplate;
+    private volatile boolean mResolved;
+    private volatile boolean mUnresolvable;
+    private volatile boolean mPrebuildIntent;
     private HashMap<String, Field> mRouteParameters;
     private HashMap<String, Field> mQueryParameters;
+    private HashMap<String, String> mRouteParameterBindings;
+    private HashMap<String, String> mQueryParameterBindings;
 
     /**
      * The constructor for Route objects.
@@ -42,14 +65,73 @@ public class IntentRouteImpl extends Route {
      */
     public IntentRouteImpl(String route, String activityClassName, HashMap<String, Field> routeParameters,
                            HashMap<String, Field> queryParameters, Context context) {
+        this(route, activityClassName, null, routeParameters, queryParameters, context);
+    }
+
+    /**
+     * The constructor for Route objects whose activity class was already loaded, avoiding the
+     * need to look it up by name when the route is opened.
+     *
+     * @param route             A route in route format.
+     * @param activityClassName The activity's class name.
+     * @param activityClass     The activity's class or null to have it loaded lazily.
+     * @param routeParameters   A HashMap where the keys are route components and the values are
+     *                          Fields.
+     * @param queryParameters   A HashMap where the keys are query components and the values are
+     *                          Fields.
+     * @param context           A context to be able to generate the JSON, and the intent.
+     */
+    public IntentRouteImpl(String route, String activityClassName, Class<?> activityClass,
+                           HashMap<String, Field> routeParameters,
+                           HashMap<String, Field> queryParameters, Context context) {
         super(route);
         mActivityClassName = activityClassName;
+        mActivityClass = activityClass;
         mRouteParameters = routeParameters;
         mQueryParameters = queryParameters;
         mContext = context;
+        mResolved = true;
+    }
+
+    /**
+     * The constructor for lazily registered Route objects, which only know their activity's class
+     * name. The activity class and its parameter fields are only loaded when the route is
+     * resolved, which happens the first time it is matched or injected.
+     *
+     * @param route             A route in route format.
+     * @param activityClassName The activity's class name.
+     * @param context           A context to be able to generate the JSON, and the intent.
+     */
+    public IntentRouteImpl(String route, String activityClassName, Context context) {
+        super(route);
+        mActivityClassName = activityClassName;
+        mContext = context;
     }
 
 
+    /**
+     * Binds the route and query parameters of a lazily registered route to fields by name, so
+     * they can be resolved without looking for annotations on the activity or fragment classes.
+     *
+     * @param routeParameterBindings A HashMap where the keys are route components and the values
+     *                               are field bindings (e.g. "com.app.ProductActivity#mId").
+     * @param queryParameterBindings A HashMap where the keys are query components and the values
+     *                               are field bindings.
+     */
+    public void setFieldBindings(HashMap<String, String> routeParameterBindings,
+                                 HashMap<String, String> queryParameterBindings) {
+        mRouteParameterBindings = routeParameterBindings;
+        mQueryParameterBindings = queryParameterBindings;
+    }
+
+    public HashMap<String, String> getRouteParameterBindings() {
+        return mRouteParameterBindings;
+    }
+
+    public HashMap<String, String> getQueryParameterBindings() {
+        return mQueryParameterBindings;
+    }
+
     public String getActivityClassName() {
         return mActivityClassName;
     }
@@ -63,63 +145,97 @@ public class IntentRouteImpl extends Route {
     }
 
     /**
-     * Retrieves the actual class out of the activity's class name.
+     * Checks whether the activity class and the parameter fields of this route are known.
+     * Lazily registered routes are only resolved once they are first matched or injected.
+     *
+     * @return true if it is resolved, false otherwise.
+     */
+    public boolean isResolved() {
+        return mResolved;
+    }
+
+    /**
+     * Marks a lazily registered route which failed to resolve, either because its activity class
+     * no longer exists or because its parameter fields do not match its route, so it is skipped
+     * from then on instead of being resolved again every time it is matched.
+     */
+    public void setUnresolvable() {
+        mUnresolvable = true;
+    }
+
+    /**
+     * Checks whether a lazily registered route failed to resolve.
+     *
+     * @return true if it failed to resolve, false otherwise.
+     */
+    public boolean isUnresolvable() {
+        return mUnresolvable;
+    }
+
+    /**
+     * Resolves a lazily registered route with its activity class and parameter fields.
+     *
+     * @param activityClass   The activity's class.
+     * @param routeParameters A HashMap where the keys are route components and the values are
+     *                        Fields.
+     * @param queryParameters A HashMap where the keys are query components and the values are
+     *                        Fields.
+     */
+    public void resolve(Class<?> activityClass, HashMap<String, Field> routeParameters,
+                        HashMap<String, Field> queryParameters) {
+        mActivityClass = activityClass;
+        mRouteParameters = routeParameters;
+        mQueryParameters = queryParameters;
+        mResolved = true;
+        if (mPrebuildIntent)
+            mIntentTemplate = getIntentTemplate();
+    }
+
+    /**
+     * Retrieves the actual class out of the activity's class name. The class is only looked up
+     * by name the first time, being kept for every subsequent call.
      *
      * @return A class object or null.
      */
-    private Class getActivityClass() {
-        try {
-            return Class.forName(mActivityClassName);
-        } catch (ClassNotFoundException e) {
-            HokoLog.e(e);
+    private Class<?> getActivityClass() {
+        Class<?> activityClass = mActivityClass;
+        if (activityClass == null && mActivityClassName != null) {
+            try {
+                activityClass = Class.forName(mActivityClassName);
+                mActivityClass = activityClass;
+            } catch (ClassNotFoundException e) {
+                HokoLog.e(e);
+            }
         }
-        return null;
+        return activityClass;
     }
 
     /**
-     * Generates an Intent out of mapping URL information with the Route object.
-     * The intent has 2 bundles, a route parameters bundle which contains a
-     * HashMap&lt;String, String&gt; of key value pairs and a query parameters bundle which also
-     * contains a HashMap&lt;String, String&gt; of key value pairs. The function also sets a few
-     * flags for better deeplinking experience.
+     * Enables or disables the Intent template of this route. When enabled, the Intent with the
+     * activity's component, the route and the deeplinking flags is built once, and opening a
+     * deeplink only copies it and attaches the parameters. Lazily registered routes only build
+     * it once resolved.
      *
-     * @param deeplink A Deeplink instance.
-     * @return The generated intent.
+     * @param prebuildIntent true to build the Intent template, false to discard it.
      */
-    private Intent getIntent(Deeplink deeplink) {
+    public void setPrebuildIntent(boolean prebuildIntent) {
+        mPrebuildIntent = prebuildIntent;
+        mIntentTemplate = prebuildIntent && mResolved ? getIntentTemplate() : null;
+    }
+
+    /**
+     * Generates the parameter independent part of the Intent, which holds the activity's
+     * component, the route and sets a few flags for better deeplinking experience.
+     *
+     * @return The generated intent or null.
+     */
+    private Intent getIntentTemplate() {
         Class<?> klass = getActivityClass();
-        if (klass == null)
+        if (klass == null || mContext == null)
             return null;
         Intent intent = new Intent(mContext, klass);
 
-        Bundle mainBundle = new Bundle();
-
-        mainBundle.putString(BUNDLE_KEY, this.getRoute());
-
-        // Route Params
-        Bundle routeParametersBundle = new Bundle();
-        HashMap<String, String> routeParameters = deeplink.getRouteParameters();
-        if (routeParameters != null) {
-            for (String key : routeParameters.keySet()) {
-                String value = routeParameters.get(key);
-                routeParametersBundle.putString(key, value);
-            }
-        }
-        mainBundle.putBundle(ROUTE_PARAMETERS_BUNDLE_KEY, routeParametersBundle);
-
-        // Query Params
-        Bundle queryParametersBundle = new Bundle();
-        HashMap<String, String> queryParameters = deeplink.getQueryParameters();
-        for (String key : queryParameters.keySet()) {
-            String value = queryParameters.get(key);
-            queryParametersBundle.putString(key, value);
-        }
-        mainBundle.putBundle(QUERY_PARAMETERS_BUNDLE_KEY, queryParametersBundle);
-
-        if (deeplink.getMetadata() != null) {
-            mainBundle.putString(METADATA_KEY, deeplink.getMetadata().toString());
-        }
-        intent.putExtras(mainBundle);
+        intent.putExtra(BUNDLE_KEY, this.getRoute());
 
         // Flags for Deeplinking
         intent.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
@@ -129,6 +245,31 @@ public class IntentRouteImpl extends Route {
         return intent;
     }
 
+    /**
+     * Generates an Intent out of mapping URL information with the Route object.
+     * The intent carries the route and a DeeplinkParcel, which holds the route parameters, the
+     * query parameters and the metadata in a compact form, along with the nested Bundles of the
+     * deprecated keys, which are still written for this release.
+     *
+     * @param deeplink A Deeplink instance.
+     * @return The generated intent.
+     */
+    private Intent getIntent(Deeplink deeplink) {
+        Intent intentTemplate = mIntentTemplate;
+        Intent intent = intentTemplate != null ? new Intent(intentTemplate) : getIntentTemplate();
+        if (intent == null)
+            return null;
+
+        DeeplinkParcel deeplinkParcel = new DeeplinkParcel(this.getRoute(), deeplink);
+        intent.putExtra(DEEPLINK_KEY, deeplinkParcel);
+
+        Bundle legacyBundles = new Bundle();
+        deeplinkParcel.writeLegacyBundles(legacyBundles);
+        intent.putExtras(legacyBundles);
+
+        return intent;
+    }
+
     @Override
     public void execute(Deeplink deeplink) {
         openIntent(getIntent(deeplink));
@@ -147,18 +288,24 @@ public class IntentRouteImpl extends Route {
 
     /**
      * Checks if an instance of Route is actually valid when it comes to mapping route
-     * components to the route parameters available.
+     * components to the route parameters available. The activity class is also resolved here,
+     * so that it only needs to be looked up once, at registration. Lazily registered routes are
+     * only validated once resolved.
      *
      * @return true if it's valid, false otherwise.
      */
     public boolean isValid() {
-        List<String> routeComponents = getComponents();
-        for (String routeComponent : routeComponents) {
-            if (routeComponent.startsWith(":")) {
-                routeComponent = routeComponent.substring(1);
-                if (!getRouteParameters().containsKey(routeComponent))
-                    return false;
-            }
+        if (!mResolved)
+            return true;
+        if (mActivityClassName != null && getActivityClass() == null)
+            return false;
+        List<RouteComponent> routeComponents = getRouteComponents();
+        if (routeComponents == null)
+            return true;
+        for (RouteComponent routeComponent : routeComponents) {
+            if (routeComponent.isParameter() && !routeComponent.isOptional()
+                    && !getRouteParameters().containsKey(routeComponent.getName()))
+                return false;
         }
         return true;
     }
@@ -0,0 +1,54 @@
+package com.hokolinks.model;
+
+/**
+ * PrefetchStatistics is an immutable snapshot of the Smartlink prefetching counters.
+ * A hit is a generated Smartlink which was served by a prefetch (either finished or still in
+ * flight), a miss is a generated Smartlink which needed a request of its own and a wasted
+ * prefetch is one whose Smartlink was never handed to the application.
+ */
+public class PrefetchStatistics {
+
+    private final int mPrefetchCount;
+    private final int mHitCount;
+    private final int mMissCount;
+    private final int mWastedCount;
+
+    public PrefetchStatistics(int prefetchCount, int hitCount, int missCount, int wastedCount) {
+        mPrefetchCount = prefetchCount;
+        mHitCount = hitCount;
+        mMissCount = missCount;
+        mWastedCount = wastedCount;
+    }
+
+    public int getPrefetchCount() {
+        return mPrefetchCount;
+    }
+
+    public int getHitCount() {
+        return mHitCount;
+    }
+
+    public int getMissCount() {
+        return mMissCount;
+    }
+
+    public int getWastedCount() {
+        return mWastedCount;
+    }
+
+    /**
+     * The ratio of generated Smartlinks that were served by a prefetch.
+     *
+     * @return A value between 0 and 1, 0 in case no Smartlinks were generated yet.
+     */
+    public float getHitRate() {
+        int total = mHitCount + mMissCount;
+        return total == 0 ? 0 : (float) mHitCount / total;
+    }
+
+    public String toString() {
+        return "<PrefetchStatistics> prefetches='" + mPrefetchCount + "' hits='" + mHitCount
+                + "' misses='" + mMissCount + "' wasted='" + mWastedCount + "'";
+    }
+
+}
@@ -9,15 +9,46 @@ import com.hokolinks.utils.networking.async.HttpRequest;
 import org.json.JSONException;
 import org.json.JSONObject;
 
-import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
 
+/**
+ * Route is the base class of every mapped route. Route formats can optionally be qualified by a
+ * scheme (e.g. "myapp://product/:id"), in which case they only match URLs with that scheme, and
+ * routes for web schemes by a host as well (e.g. "https://example.com/product/:id"), in which case
+ * the host is matched as a qualifier instead of as the first route component.
+ */
 public abstract class Route {
+
+    private static final String SCHEME_SEPARATOR = "://";
+
     private String mRoute;
+    private String mScheme;
+    private String mHost;
+    private String mPath;
+    private List<String> mComponents;
+    private List<RouteComponent> mRouteComponents;
 
     Route(String route) {
         mRoute = route;
+        mPath = route;
+        int schemeEnd = route != null ? route.indexOf(SCHEME_SEPARATOR) : -1;
+        if (schemeEnd > 0) {
+            mScheme = route.substring(0, schemeEnd).toLowerCase(Locale.ENGLISH);
+            mPath = route.substring(schemeEnd + SCHEME_SEPARATOR.length());
+            if (isWebScheme(mScheme)) {
+                int hostEnd = mPath.indexOf('/');
+                mHost = (hostEnd == -1 ? mPath : mPath.substring(0, hostEnd))
+                        .toLowerCase(Locale.ENGLISH);
+                mPath = hostEnd == -1 ? "" : mPath.substring(hostEnd + 1);
+            }
+        }
+    }
+
+    private static boolean isWebScheme(String scheme) {
+        return "http".equals(scheme) || "https".equals(scheme);
     }
 
     public String getRoute() {
@@ -25,14 +56,78 @@ public abstract class Route {
     }
 
     /**
-     * Splits the route format into components.
+     * Returns the scheme qualifying this route.
+     *
+     * @return The lowercase scheme or null in case the route matches any scheme.
+     */
+    public String getScheme() {
+        return mScheme;
+    }
+
+    /**
+     * Returns the host qualifying this route, only available on routes for web schemes.
+     *
+     * @return The lowercase host or null in case the route matches any host.
+     */
+    public String getHost() {
+        return mHost;
+    }
+
+    /**
+     * Splits the route format, without its scheme and host qualifiers, into components, the first
+     * time they are needed.
      *
-     * @return A List of Route components.
+     * @return An unmodifiable List of Route components.
      */
     public List<String> getComponents() {
         if (mRoute == null)
             return null;
-        return new ArrayList<>(Arrays.asList(mRoute.split("/")));
+        List<String> components = mComponents;
+        if (components == null) {
+            components = mPath.length() == 0 ? Collections.<String>emptyList()
+                    : Collections.unmodifiableList(Arrays.asList(mPath.split("/")));
+            mComponents = components;
+        }
+        return components;
+    }
+
+    /**
+     * Parses the route format into RouteComponents, the first time they are needed.
+     *
+     * @return An unmodifiable List of RouteComponents.
+     */
+    public List<RouteComponent> getRouteComponents() {
+        if (mRoute == null)
+            return null;
+        List<RouteComponent> routeComponents = mRouteComponents;
+        if (routeComponents == null) {
+            List<String> components = getComponents();
+            RouteComponent[] parsedComponents = new RouteComponent[components.size()];
+            for (int index = 0; index < parsedComponents.length; index++) {
+                parsedComponents[index] = RouteComponent.parse(components.get(index));
+            }
+            routeComponents = Collections.unmodifiableList(Arrays.asList(parsedComponents));
+            mRouteComponents = routeComponents;
+        }
+        return routeComponents;
+    }
+
+    /**
+     * Checks whether a route parameter can be left out of the URLs matching this route, being
+     * either an optional route parameter or a catch-all.
+     *
+     * @param name The route parameter name.
+     * @return true if it is optional, false otherwise.
+     */
+    public boolean isOptionalParameter(String name) {
+        List<RouteComponent> routeComponents = getRouteComponents();
+        if (routeComponents == null)
+            return false;
+        for (RouteComponent routeComponent : routeComponents) {
+            if (routeComponent.isOptional() && name.equals(routeComponent.getName()))
+                return true;
+        }
+        return false;
     }
 
     public abstract void execute(Deeplink deeplink);
@@ -46,7 +141,8 @@ public abstract class Route {
     public void post(String token, Context context) {
         Networking.getNetworking().addRequest(
                 new HttpRequest(HttpRequest.HokoNetworkOperationType.POST, "routes", token,
-                        getJSON(context).toString()));
+                        getJSON(context).toString(), HttpRequest.HokoNetworkPriority.LOW,
+                        true));
 
     }
 
@@ -58,12 +154,13 @@ public abstract class Route {
      */
     public JSONObject getJSON(Context context) {
         try {
+            ClientInfo clientInfo = ClientInfo.get(context);
             JSONObject root = new JSONObject();
             JSONObject route = new JSONObject();
-            route.put("build", App.getVersionCode(context));
-            route.put("device", Device.getVendor() + " " + Device.getModel());
+            route.put("build", clientInfo.getVersionCode());
+            route.put("device", clientInfo.getDevice());
             route.put("path", mRoute);
-            route.put("version", App.getVersion(context));
+            route.put("version", clientInfo.getVersion());
             root.put("route", route);
             return root;
         } catch (JSONException e) {
@@ -0,0 +1,208 @@
+package com.hokolinks.model;
+
+import com.hokolinks.utils.log.HokoLog;
+
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * RouteComponent is a parsed component of a route format, either a literal (e.g. "product"), a
+ * route parameter (e.g. ":product_id") or a route parameter constrained by a type or a regular
+ * expression between braces (e.g. ":product_id{int}" or ":code{[A-Z]{3}}"). Constraints are
+ * evaluated while matching, so routes which only differ on the type of a parameter can coexist.
+ * The supported types are int, long, float, double and bool, anything else is compiled as a
+ * regular expression which has to match the whole path component and can not contain '/'.
+ * Trailing route parameters can be made optional with a '?' suffix (e.g. "help/:topic?"), and the
+ * last component can be a catch-all, starting with '*' (e.g. "help/*rest"), which captures zero or
+ * more remaining path components joined by '/'. Parameters which are left out are not captured.
+ */
+public class RouteComponent {
+
+    private static final String TYPE_INT = "int";
+    private static final String TYPE_LONG = "long";
+    private static final String TYPE_FLOAT = "float";
+    private static final String TYPE_DOUBLE = "double";
+    private static final String TYPE_BOOL = "bool";
+
+    private static final Pattern INTEGER_PATTERN = Pattern.compile("-?\\d+");
+    private static final Pattern DECIMAL_PATTERN = Pattern.compile("-?\\d+(\\.\\d+)?");
+    private static final Pattern BOOL_PATTERN = Pattern.compile("(?i)true|false");
+
+    private static final char PARAMETER_PREFIX = ':';
+    private static final char CATCH_ALL_PREFIX = '*';
+    private static final char OPTIONAL_SUFFIX = '?';
+
+    private final String mComponent;
+    private final String mName;
+    private final String mConstraint;
+    private final Pattern mPattern;
+    private final boolean mOptional;
+    private final boolean mCatchAll;
+
+    private RouteComponent(String component, String name, String constraint, Pattern pattern,
+                           boolean optional, boolean catchAll) {
+        mComponent = component;
+        mName = name;
+        mConstraint = constraint;
+        mPattern = pattern;
+        mOptional = optional;
+        mCatchAll = catchAll;
+    }
+
+    /**
+     * Parses a component of a route format.
+     *
+     * @param component The component, e.g. "product", ":product_id{int}" or "*rest".
+     * @return A RouteComponent object.
+     */
+    public static RouteComponent parse(String component) {
+        String name = parameterName(component);
+        if (name == null) {
+            return new RouteComponent(component, null, null, null, false, false);
+        }
+        if (isCatchAll(component)) {
+            return new RouteComponent(component, name, null, null, true, true);
+        }
+        boolean optional = isOptional(component);
+        int end = optional ? component.length() - 1 : component.length();
+        int constraintStart = name.length() + 1;
+        if (constraintStart == end) {
+            return new RouteComponent(component, name, null, null, optional, false);
+        }
+        String constraint = component.substring(constraintStart + 1, end - 1);
+        return new RouteComponent(component, name, constraint, compileConstraint(constraint),
+                optional, false);
+    }
+
+    /**
+     * Returns the name of the route parameter of a component of a route format, without its
+     * constraint.
+     *
+     * @param component The component, e.g. ":product_id{int}".
+     * @return The route parameter name, e.g. "product_id", or null in case the component is not a
+     * route parameter.
+     */
+    public static String parameterName(String component) {
+        if (!isParameter(component)) {
+            return null;
+        }
+        if (isCatchAll(component)) {
+            return component.substring(1);
+        }
+        int end = isOptional(component) ? component.length() - 1 : component.length();
+        int constraintStart = component.indexOf('{');
+        if (constraintStart == -1 || constraintStart >= end || component.charAt(end - 1) != '}') {
+            return component.substring(1, end);
+        }
+        return component.substring(1, constraintStart);
+    }
+
+    /**
+     * Checks whether a component of a route format can be left out of a URL, either an optional
+     * route parameter or a catch-all.
+     *
+     * @param component The component, e.g. ":topic?" or "*rest".
+     * @return true if it is optional, false otherwise.
+     */
+    public static boolean isOptional(String component) {
+        return isParameter(component) && (isCatchAll(component)
+                || (component.length() > 2
+                && component.charAt(component.length() - 1) == OPTIONAL_SUFFIX));
+    }
+
+    /**
+     * Checks whether a component of a route format is a catch-all.
+     *
+     * @param component The component, e.g. "*rest".
+     * @return true if it is a catch-all, false otherwise.
+     */
+    public static boolean isCatchAll(String component) {
+        return component.length() > 1 && component.charAt(0) == CATCH_ALL_PREFIX;
+    }
+
+    private static boolean isParameter(String component) {
+        return component.length() > 1 && (component.charAt(0) == PARAMETER_PREFIX
+                || component.charAt(0) == CATCH_ALL_PREFIX);
+    }
+
+    private static Pattern compileConstraint(String constraint) {
+        switch (constraint) {
+            case TYPE_INT:
+            case TYPE_LONG:
+                return INTEGER_PATTERN;
+            case TYPE_FLOAT:
+            case TYPE_DOUBLE:
+                return DECIMAL_PATTERN;
+            case TYPE_BOOL:
+                return BOOL_PATTERN;
+            default:
+                try {
+                    return Pattern.compile(constraint);
+                } catch (PatternSyntaxException e) {
+                    HokoLog.e(e);
+                    return null;
+                }
+        }
+    }
+
+    public boolean isParameter() {
+        return mName != null;
+    }
+
+    public boolean isConstrained() {
+        return mConstraint != null;
+    }
+
+    public boolean isOptional() {
+        return mOptional;
+    }
+
+    public boolean isCatchAll() {
+        return mCatchAll;
+    }
+
+    /**
+     * Returns the route parameter name.
+     *
+     * @return The route parameter name or null in case this is a literal.
+     */
+    public String getName() {
+        return mName;
+    }
+
+    /**
+     * Checks whether a path component matches this component. Literals match case insensitively,
+     * route parameters match anything that satisfies their constraint, if any. Integers also
+     * have to fit their type, so they never fail to be parsed once the route is opened.
+     *
+     * @param pathComponent The decoded path component.
+     * @return true if it matches, false otherwise.
+     */
+    public boolean matches(String pathComponent) {
+        if (mName == null) {
+            return mComponent.equalsIgnoreCase(pathComponent);
+        }
+        if (mConstraint == null) {
+            return true;
+        }
+        if (mPattern == null || !mPattern.matcher(pathComponent).matches()) {
+            return false;
+        }
+        try {
+            if (TYPE_INT.equals(mConstraint)) {
+                Integer.parseInt(pathComponent);
+            } else if (TYPE_LONG.equals(mConstraint)) {
+                Long.parseLong(pathComponent);
+            }
+        } catch (NumberFormatException e) {
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return mComponent;
+    }
+
+}
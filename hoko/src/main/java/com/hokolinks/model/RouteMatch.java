@@ -0,0 +1,34 @@
+package com.hokolinks.model;
+
+import java.util.HashMap;
+
+/**
+ * RouteMatch is the result of matching a URL against a Route, holding the route and the route
+ * parameters captured from the URL's path components, so a deeplink can be built without
+ * matching the URL a second time.
+ */
+public class RouteMatch {
+
+    private final Route mRoute;
+    private final HashMap<String, String> mRouteParameters;
+
+    public RouteMatch(Route route, HashMap<String, String> routeParameters) {
+        mRoute = route;
+        mRouteParameters = routeParameters;
+    }
+
+    public Route getRoute() {
+        return mRoute;
+    }
+
+    /**
+     * Returns the route parameters captured from the URL.
+     *
+     * @return A HashMap where the keys are the route parameter names and the values are their
+     * values on the URL, or null for the default route.
+     */
+    public HashMap<String, String> getRouteParameters() {
+        return mRouteParameters;
+    }
+
+}
@@ -1,22 +1,22 @@
 package com.hokolinks.model;
 
-import android.net.Uri;
-
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
-import java.util.Set;
 
 /**
- * URL is a wrapper around a Uri object. It provides functions to parse the query parameters,
- * url scheme, component matching and route matching.
+ * URL parses a url String into its scheme, components and query parameters through a
+ * URLTokenizer. It provides functions to parse the query parameters, url scheme, component
+ * matching and route matching.
  */
 public class URL {
 
-    private Uri mUri;
+    private URLTokenizer mTokenizer;
 
     private String mScheme;
     private HashMap<String, String> mQueryParameters;
+    private String[] mPathComponents;
+    private String[] mHostPathComponents;
 
     /**
      * The constructor for URL receives a url and parses it into scheme and query parameters.
@@ -24,22 +24,25 @@ public class URL {
      * @param urlString A String object representing a url.
      */
     public URL(String urlString) {
-        mUri = Uri.parse(sanitizeURL(urlString));
-        mScheme = mUri.getScheme();
-        mQueryParameters = queryParameters(mUri);
+        mTokenizer = new URLTokenizer(sanitizeURL(urlString));
+        mScheme = mTokenizer.getScheme();
+        mQueryParameters = queryParameters(mTokenizer);
     }
 
     /**
-     * Retrieves the query parameters out of a Uri object.
+     * Retrieves the query parameters out of a URLTokenizer object. In case a parameter appears
+     * more than once, its first value is kept.
      *
-     * @param uri A Uri object.
+     * @param tokenizer A URLTokenizer object.
      * @return  The query parameters in HashMap form.
      */
-    private static HashMap<String, String> queryParameters(Uri uri) {
+    private static HashMap<String, String> queryParameters(URLTokenizer tokenizer) {
         HashMap<String, String> queryParameters = new HashMap<>();
-        Set<String> queryParameterNames = uri.getQueryParameterNames();
-        for (String queryParameterName : queryParameterNames) {
-            queryParameters.put(queryParameterName, uri.getQueryParameter(queryParameterName));
+        for (int index = 0; index < tokenizer.getQueryParameterCount(); index++) {
+            String queryParameterName = tokenizer.getQueryParameterName(index);
+            if (!queryParameters.containsKey(queryParameterName)) {
+                queryParameters.put(queryParameterName, tokenizer.getQueryParameterValue(index));
+            }
         }
 
         return queryParameters;
@@ -48,31 +51,67 @@ public class URL {
     /**
      * Matches path components with route components. This will result in a map between the two.
      *
-     * @param pathComponents Path components in list form.
+     * Route parameters have to satisfy their constraints, if any. Optional route parameters may
+     * be left out at the end of the path, and a trailing catch-all captures the remaining path
+     * components joined by '/'.
+     *
+     * @param pathComponents Path components in array form.
      * @param routeComponents Route components in list form.
-     * @return A HashMap where the keys are route components and values are their value
+     * @return A HashMap where the keys are route parameter names and values are their value
      * representation of path components.
      */
-    private static HashMap<String, String> matchComponents(List<String> pathComponents,
-                                                           List<String> routeComponents) {
-        HashMap<String, String> routeParameters = new HashMap<>();
-        for (int index = 0; index < pathComponents.size(); index++) {
-            String pathComponent = pathComponents.get(index);
-            String routeComponent = routeComponents.get(index);
-            if (pathComponent == null || routeComponent == null) {
-                return null;
+    private static HashMap<String, String> matchComponents(String[] pathComponents,
+                                                           List<RouteComponent> routeComponents) {
+        int count = routeComponents.size();
+        boolean catchAll = count > 0 && routeComponents.get(count - 1).isCatchAll();
+        int fixedCount = catchAll ? count - 1 : count;
+        if (!catchAll && pathComponents.length > count) {
+            return null;
+        }
+
+        for (int index = 0; index < fixedCount; index++) {
+            RouteComponent routeComponent = routeComponents.get(index);
+            if (index >= pathComponents.length) {
+                if (!routeComponent.isOptional()) {
+                    return null;
+                }
+                continue;
             }
-            if (routeComponent.startsWith(":")) {
-                routeParameters.put(routeComponent.substring(1), pathComponent);
-            } else if (routeComponent.compareToIgnoreCase(pathComponent) != 0) {
+            String pathComponent = pathComponents[index];
+            if (pathComponent == null || !routeComponent.matches(pathComponent)) {
                 return null;
             }
         }
+
+        // Only routes which match get their parameters captured
+        HashMap<String, String> routeParameters = new HashMap<>();
+        int matchedCount = Math.min(fixedCount, pathComponents.length);
+        for (int index = 0; index < matchedCount; index++) {
+            RouteComponent routeComponent = routeComponents.get(index);
+            if (routeComponent.isParameter()) {
+                routeParameters.put(routeComponent.getName(), pathComponents[index]);
+            }
+        }
+        if (catchAll && pathComponents.length > fixedCount) {
+            StringBuilder rest = new StringBuilder();
+            for (int index = fixedCount; index < pathComponents.length; index++) {
+                if (pathComponents[index] == null) {
+                    return null;
+                }
+                if (index > fixedCount) {
+                    rest.append('/');
+                }
+                rest.append(pathComponents[index]);
+            }
+            routeParameters.put(routeComponents.get(fixedCount).getName(), rest.toString());
+        }
         return routeParameters;
     }
 
     /**
-     * Sanitizes a URL String to remove '/' characters.
+     * Sanitizes a URL String to remove '/' characters. Leading and trailing '/' characters are
+     * removed and repeated '/' characters are collapsed into one, except right after the scheme,
+     * where up to two are kept.
      *
      * @param urlString A String object representing a url.
      * @return A String object representing the sanitized url.
@@ -80,20 +119,93 @@ public class URL {
     public static String sanitizeURL(String urlString) {
         if (urlString == null)
             return null;
-        String sanitizedURLString = urlString.replaceAll("^/+", "");
-        sanitizedURLString = sanitizedURLString.replaceAll("/+$", "");
-        sanitizedURLString = sanitizedURLString.replaceAll("(?<!:)(/)+", "/");
-        return sanitizedURLString;
+        int start = 0;
+        int end = urlString.length();
+        while (start < end && urlString.charAt(start) == '/')
+            start++;
+        while (end > start && urlString.charAt(end - 1) == '/')
+            end--;
+
+        StringBuilder sanitizedURLString = null;
+        int index = start;
+        while (index < end) {
+            if (urlString.charAt(index) != '/') {
+                if (sanitizedURLString != null)
+                    sanitizedURLString.append(urlString.charAt(index));
+                index++;
+                continue;
+            }
+            int slashesEnd = index;
+            while (slashesEnd < end && urlString.charAt(slashesEnd) == '/')
+                slashesEnd++;
+            int slashes = urlString.charAt(index - 1) == ':' ? Math.min(slashesEnd - index, 2) : 1;
+            if (sanitizedURLString == null && slashes != slashesEnd - index) {
+                sanitizedURLString = new StringBuilder(end - start);
+                sanitizedURLString.append(urlString, start, index);
+            }
+            if (sanitizedURLString != null) {
+                for (int slash = 0; slash < slashes; slash++)
+                    sanitizedURLString.append('/');
+            }
+            index = slashesEnd;
+        }
+
+        if (sanitizedURLString != null)
+            return sanitizedURLString.toString();
+        return urlString.substring(start, end);
     }
 
     public String getScheme() {
         return mScheme;
     }
 
+    /**
+     * Returns the host of the URL, which is matched as the first route component on routes which
+     * are not qualified by a host.
+     *
+     * @return The authority of the URL or null in case it has none.
+     */
+    public String getHost() {
+        String[] pathComponents = getPathComponents();
+        return pathComponents[0];
+    }
+
     public HashMap<String, String> getQueryParameters() {
         return mQueryParameters;
     }
 
+    /**
+     * Decodes the authority and the path segments, which are matched against routes, the first
+     * time they are needed.
+     *
+     * @return The path components, starting with the authority.
+     */
+    private String[] getPathComponents() {
+        if (mPathComponents == null) {
+            String[] pathComponents = new String[mTokenizer.getPathSegmentCount() + 1];
+            pathComponents[0] = mTokenizer.getAuthority();
+            for (int index = 1; index < pathComponents.length; index++) {
+                pathComponents[index] = mTokenizer.getPathSegment(index - 1);
+            }
+            mPathComponents = pathComponents;
+        }
+        return mPathComponents;
+    }
+
+    /**
+     * Returns the path components which follow the host, matched against routes which are
+     * qualified by a host, the first time they are needed.
+     *
+     * @return The path components, without the authority.
+     */
+    private String[] getHostPathComponents() {
+        if (mHostPathComponents == null) {
+            String[] pathComponents = getPathComponents();
+            mHostPathComponents = Arrays.copyOfRange(pathComponents, 1, pathComponents.length);
+        }
+        return mHostPathComponents;
+    }
+
     /**
      * Tries to match a Route object to this URL instance.
      * Will perform path components and route components validation and return the matched values
@@ -104,17 +216,36 @@ public class URL {
      * representation of path components.
      */
     public HashMap<String, String> matchesWithRoute(Route route) {
-        List<String> pathComponents = new ArrayList<>();
-        pathComponents.add(mUri.getAuthority());
-        pathComponents.addAll(mUri.getPathSegments());
-        List<String> routeComponents = route.getComponents();
+        RouteMatch routeMatch = match(route);
+        return routeMatch != null ? routeMatch.getRouteParameters() : null;
+    }
 
-        if (routeComponents == null || pathComponents.size() != routeComponents.size())
+    /**
+     * Tries to match a Route object to this URL instance in a single pass, capturing the route
+     * parameters along with the route.
+     *
+     * @param route A Route instance.
+     * @return A RouteMatch object or null in case the route does not match.
+     */
+    public RouteMatch match(Route route) {
+        List<RouteComponent> routeComponents = route.getRouteComponents();
+        if (routeComponents == null)
+            return null;
+        if (route.getScheme() != null && !route.getScheme().equalsIgnoreCase(mScheme))
             return null;
-        return matchComponents(pathComponents, routeComponents);
+
+        String[] pathComponents = getPathComponents();
+        if (route.getHost() != null) {
+            if (!route.getHost().equalsIgnoreCase(pathComponents[0]))
+                return null;
+            pathComponents = getHostPathComponents();
+        }
+        HashMap<String, String> routeParameters = matchComponents(pathComponents,
+                routeComponents);
+        return routeParameters != null ? new RouteMatch(route, routeParameters) : null;
     }
 
     public String getURL() {
-        return mUri.toString();
+        return mTokenizer.getURLString();
     }
 }
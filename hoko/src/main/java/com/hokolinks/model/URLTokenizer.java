@@ -0,0 +1,254 @@
+package com.hokolinks.model;
+
+import java.io.ByteArrayOutputStream;
+import java.io.UnsupportedEncodingException;
+
+/**
+ * URLTokenizer splits a URL String into its scheme, authority, path segments and query parameters
+ * in a single pass, following the same rules as android.net.Uri for hierarchical URIs.
+ * It only keeps index ranges into the original String, decoding a component when it is
+ * requested, and has no dependencies on the Android framework.
+ */
+class URLTokenizer {
+
+    private static final int NOT_FOUND = -1;
+
+    private final String mURLString;
+
+    private int mSchemeEnd = NOT_FOUND;
+    private int mAuthorityStart = NOT_FOUND;
+    private int mAuthorityEnd = NOT_FOUND;
+
+    // Start and end indexes of each non empty path segment
+    private int[] mPathSegments = new int[8];
+    private int mPathSegmentCount;
+
+    // Name start, name end, value start and value end indexes of each query parameter
+    private int[] mQueryParameters = new int[16];
+    private int mQueryParameterCount;
+
+    /**
+     * Tokenizes a URL String.
+     *
+     * @param urlString A String object representing a url.
+     */
+    URLTokenizer(String urlString) {
+        mURLString = urlString;
+        tokenize();
+    }
+
+    private void tokenize() {
+        String url = mURLString;
+        int length = url.length();
+        int index = 0;
+
+        // Scheme, in case a ':' comes before any '/', '?' or '#'
+        for (int scan = 0; scan < length; scan++) {
+            char character = url.charAt(scan);
+            if (character == ':') {
+                if (scan > 0) {
+                    mSchemeEnd = scan;
+                    index = scan + 1;
+                }
+                break;
+            } else if (character == '/' || character == '?' || character == '#') {
+                break;
+            }
+        }
+
+        // Authority
+        if (index + 1 < length && url.charAt(index) == '/' && url.charAt(index + 1) == '/') {
+            index += 2;
+            mAuthorityStart = index;
+            while (index < length && !isAuthorityEnd(url.charAt(index))) {
+                index++;
+            }
+            mAuthorityEnd = index;
+        }
+
+        // Path
+        int segmentStart = index;
+        while (index <= length) {
+            char character = index < length ? url.charAt(index) : '?';
+            if (character == '/' || character == '?' || character == '#') {
+                if (index > segmentStart) {
+                    addPathSegment(segmentStart, index);
+                }
+                segmentStart = index + 1;
+                if (character != '/')
+                    break;
+            }
+            index++;
+        }
+
+        // Query
+        if (index < length && url.charAt(index) == '?') {
+            index++;
+            int nameStart = index;
+            int nameEnd = NOT_FOUND;
+            while (index <= length) {
+                char character = index < length ? url.charAt(index) : '#';
+                if (character == '=' && nameEnd == NOT_FOUND) {
+                    nameEnd = index;
+                } else if (character == '&' || character == '#') {
+                    if (index > nameStart) {
+                        if (nameEnd == NOT_FOUND) {
+                            addQueryParameter(nameStart, index, index, index);
+                        } else {
+                            addQueryParameter(nameStart, nameEnd, nameEnd + 1, index);
+                        }
+                    }
+                    nameStart = index + 1;
+                    nameEnd = NOT_FOUND;
+                    if (character == '#')
+                        break;
+                }
+                index++;
+            }
+        }
+    }
+
+    private static boolean isAuthorityEnd(char character) {
+        return character == '/' || character == '?' || character == '#';
+    }
+
+    private void addPathSegment(int start, int end) {
+        if (mPathSegmentCount * 2 == mPathSegments.length) {
+            mPathSegments = grow(mPathSegments);
+        }
+        mPathSegments[mPathSegmentCount * 2] = start;
+        mPathSegments[mPathSegmentCount * 2 + 1] = end;
+        mPathSegmentCount++;
+    }
+
+    private void addQueryParameter(int nameStart, int nameEnd, int valueStart, int valueEnd) {
+        if (mQueryParameterCount * 4 == mQueryParameters.length) {
+            mQueryParameters = grow(mQueryParameters);
+        }
+        int offset = mQueryParameterCount * 4;
+        mQueryParameters[offset] = nameStart;
+        mQueryParameters[offset + 1] = nameEnd;
+        mQueryParameters[offset + 2] = valueStart;
+        mQueryParameters[offset + 3] = valueEnd;
+        mQueryParameterCount++;
+    }
+
+    private static int[] grow(int[] array) {
+        int[] grown = new int[array.length * 2];
+        System.arraycopy(array, 0, grown, 0, array.length);
+        return grown;
+    }
+
+    public String getURLString() {
+        return mURLString;
+    }
+
+    public String getScheme() {
+        return mSchemeEnd == NOT_FOUND ? null : mURLString.substring(0, mSchemeEnd);
+    }
+
+    /**
+     * Returns the decoded authority, which HOKO treats as the first component of a deeplink.
+     *
+     * @return The authority or null in case the URL has none.
+     */
+    public String getAuthority() {
+        if (mAuthorityStart == NOT_FOUND)
+            return null;
+        return decode(mURLString, mAuthorityStart, mAuthorityEnd, false);
+    }
+
+    public int getPathSegmentCount() {
+        return mPathSegmentCount;
+    }
+
+    public String getPathSegment(int index) {
+        return decode(mURLString, mPathSegments[index * 2], mPathSegments[index * 2 + 1], false);
+    }
+
+    public int getQueryParameterCount() {
+        return mQueryParameterCount;
+    }
+
+    public String getQueryParameterName(int index) {
+        return decode(mURLString, mQueryParameters[index * 4], mQueryParameters[index * 4 + 1],
+                false);
+    }
+
+    /**
+     * Returns the decoded value of a query parameter, converting '+' characters to spaces.
+     *
+     * @param index The index of the query parameter.
+     * @return The value, which is empty in case the parameter has no '='.
+     */
+    public String getQueryParameterValue(int index) {
+        return decode(mURLString, mQueryParameters[index * 4 + 2], mQueryParameters[index * 4 + 3],
+                true);
+    }
+
+    /**
+     * Decodes a range of a String, turning '%' escaped octets into UTF-8 characters. Malformed
+     * escapes are kept as they are. Ranges without anything to decode are returned as substrings.
+     *
+     * @param string       The String.
+     * @param start        The start index of the range.
+     * @param end          The end index of the range.
+     * @param convertPlus  true to convert '+' characters to spaces, false otherwise.
+     * @return The decoded String.
+     */
+    static String decode(String string, int start, int end, boolean convertPlus) {
+        int index = start;
+        while (index < end) {
+            char character = string.charAt(index);
+            if (character == '%' || (convertPlus && character == '+'))
+                break;
+            index++;
+        }
+        if (index == end)
+            return string.substring(start, end);
+
+        StringBuilder builder = new StringBuilder(end - start);
+        builder.append(string, start, index);
+        ByteArrayOutputStream bytes = null;
+        while (index < end) {
+            char character = string.charAt(index);
+            if (character == '%' && index + 2 < end
+                    && hexValue(string.charAt(index + 1)) != NOT_FOUND
+                    && hexValue(string.charAt(index + 2)) != NOT_FOUND) {
+                if (bytes == null)
+                    bytes = new ByteArrayOutputStream();
+                bytes.write((hexValue(string.charAt(index + 1)) << 4)
+                        | hexValue(string.charAt(index + 2)));
+                index += 3;
+                continue;
+            }
+            flushBytes(builder, bytes);
+            builder.append(convertPlus && character == '+' ? ' ' : character);
+            index++;
+        }
+        flushBytes(builder, bytes);
+        return builder.toString();
+    }
+
+    private static void flushBytes(StringBuilder builder, ByteArrayOutputStream bytes) {
+        if (bytes == null || bytes.size() == 0)
+            return;
+        try {
+            builder.append(bytes.toString("UTF-8"));
+        } catch (UnsupportedEncodingException e) {
+            // UTF-8 is always supported
+        }
+        bytes.reset();
+    }
+
+    private static int hexValue(char character) {
+        if (character >= '0' && character <= '9')
+            return character - '0';
+        if (character >= 'a' && character <= 'f')
+            return character - 'a' + 10;
+        if (character >= 'A' && character <= 'F')
+            return character - 'A' + 10;
+        return NOT_FOUND;
+    }
+
+}
@@ -13,6 +13,12 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.io.RandomAccessFile;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Calendar;
 import java.util.Locale;
 import java.util.UUID;
@@ -28,6 +34,8 @@ public class Utils {
     private static final String FOLDER_NAME = "hoko";
     // Hoko SharedPreferences key
     private static final String SHARED_PREFERENCES_STRING_KEY = "com.hoko.string";
+    // Digits used when percent-encoding
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
 
     /**
      * Checks where the application has a given permission granted on the AndroidManifest.xml file.
@@ -133,6 +141,73 @@ public class Utils {
         return null;
     }
 
+    /**
+     * Saves bytes to the private filesystem of the application, writing them to a temporary file
+     * first so the file is either fully replaced or left as it was.
+     *
+     * @param bytes    The bytes to be saved.
+     * @param filename The filename with which it should be saved.
+     * @param context  A context object.
+     */
+    public static void saveBytesToFile(byte[] bytes, String filename, Context context) {
+        try {
+            File file = fileFromFilename(filename, context);
+            File temporaryFile = fileFromFilename(filename + ".tmp", context);
+            FileOutputStream fileOutputStream = new FileOutputStream(temporaryFile);
+            try {
+                fileOutputStream.write(bytes);
+            } finally {
+                fileOutputStream.close();
+            }
+            if (!temporaryFile.renameTo(file)) {
+                HokoLog.e("Could not save " + filename);
+            }
+        } catch (IOException | NullPointerException e) {
+            HokoLog.e(e);
+        }
+    }
+
+    /**
+     * Memory-maps a file from the private filesystem of the application, read only.
+     *
+     * @param filename The filename.
+     * @param context  A context object.
+     * @return The mapped contents of the file, or null in case it does not exist.
+     */
+    public static ByteBuffer mapFile(String filename, Context context) {
+        try {
+            RandomAccessFile randomAccessFile =
+                    new RandomAccessFile(fileFromFilename(filename, context), "r");
+            try {
+                FileChannel channel = randomAccessFile.getChannel();
+                return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            } finally {
+                randomAccessFile.close();
+            }
+        } catch (FileNotFoundException e) {
+            // ignore
+        } catch (IOException | NullPointerException e) {
+            HokoLog.e(e);
+        }
+        return null;
+    }
+
+    /**
+     * Returns the size of a file on the private filesystem of the application.
+     *
+     * @param filename The filename.
+     * @param context  A context object.
+     * @return The size in bytes, 0 in case the file does not exist.
+     */
+    public static long fileLength(String filename, Context context) {
+        try {
+            return fileFromFilename(filename, context).length();
+        } catch (NullPointerException e) {
+            HokoLog.e(e);
+        }
+        return 0;
+    }
+
     /**
      * Generates a random UUID string adding a time factor to guarantee some more randomness.
      *
@@ -144,6 +219,27 @@ public class Utils {
         return uid + "-" + tenCharEpoch(timeSince1970);
     }
 
+    /**
+     * Hashes a string with SHA-256 over its UTF-8 bytes.
+     *
+     * @param string The string to hash.
+     * @return The lowercase hexadecimal hash, or null in case SHA-256 is not available.
+     */
+    public static String sha256(String string) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(string.getBytes("UTF-8"));
+            StringBuilder builder = new StringBuilder(hash.length * 2);
+            for (byte value : hash) {
+                builder.append(Character.forDigit((value >> 4) & 0xF, 16))
+                        .append(Character.forDigit(value & 0xF, 16));
+            }
+            return builder.toString();
+        } catch (NoSuchAlgorithmException | UnsupportedEncodingException e) {
+            HokoLog.e(e);
+        }
+        return null;
+    }
+
     /**
      * Sanitizes a route by replacing leading and ending '/' characters.
      *
@@ -156,6 +252,58 @@ public class Utils {
         return sanitizedRoute;
     }
 
+    /**
+     * Percent-encodes a string into a StringBuilder as UTF-8, leaving unreserved characters
+     * untouched. Strings which need no encoding are appended as they are, without allocating.
+     *
+     * @param builder The StringBuilder to append to.
+     * @param string  The string to be encoded.
+     * @param query   true to encode spaces as '+' (query components), false to encode them as
+     *                "%20" (path components).
+     */
+    public static void appendEncoded(StringBuilder builder, String string, boolean query) {
+        int length = string.length();
+        int index = 0;
+        while (index < length && isUnreserved(string.charAt(index))) {
+            index++;
+        }
+        builder.append(string, 0, index);
+        while (index < length) {
+            char character = string.charAt(index++);
+            if (isUnreserved(character)) {
+                builder.append(character);
+            } else if (character == ' ' && query) {
+                builder.append('+');
+            } else if (character < 0x80) {
+                appendPercentEncoded(builder, character);
+            } else if (character < 0x800) {
+                appendPercentEncoded(builder, 0xC0 | (character >> 6));
+                appendPercentEncoded(builder, 0x80 | (character & 0x3F));
+            } else if (Character.isHighSurrogate(character) && index < length
+                    && Character.isLowSurrogate(string.charAt(index))) {
+                int codePoint = Character.toCodePoint(character, string.charAt(index++));
+                appendPercentEncoded(builder, 0xF0 | (codePoint >> 18));
+                appendPercentEncoded(builder, 0x80 | ((codePoint >> 12) & 0x3F));
+                appendPercentEncoded(builder, 0x80 | ((codePoint >> 6) & 0x3F));
+                appendPercentEncoded(builder, 0x80 | (codePoint & 0x3F));
+            } else {
+                appendPercentEncoded(builder, 0xE0 | (character >> 12));
+                appendPercentEncoded(builder, 0x80 | ((character >> 6) & 0x3F));
+                appendPercentEncoded(builder, 0x80 | (character & 0x3F));
+            }
+        }
+    }
+
+    private static boolean isUnreserved(char character) {
+        return (character >= 'a' && character <= 'z') || (character >= 'A' && character <= 'Z')
+                || (character >= '0' && character <= '9') || character == '-' || character == '_'
+                || character == '.' || character == '~';
+    }
+
+    private static void appendPercentEncoded(StringBuilder builder, int value) {
+        builder.append('%').append(HEX_DIGITS[(value >> 4) & 0xF]).append(HEX_DIGITS[value & 0xF]);
+    }
+
     /**
      * Helper function to return the File from a given filename.
      *
@@ -0,0 +1,34 @@
+package com.hokolinks.utils.dispatch;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.concurrent.Executor;
+
+/**
+ * MainThreadExecutor runs Runnables on the main thread, right away in case it is called from the
+ * main thread and posted to the main Looper otherwise. This is the default executor for route
+ * callbacks and handlers, so apps can update their UI from them.
+ */
+public class MainThreadExecutor implements Executor {
+
+    private Handler mHandler;
+
+    @Override
+    public void execute(Runnable runnable) {
+        Looper mainLooper = Looper.getMainLooper();
+        if (Looper.myLooper() == mainLooper) {
+            runnable.run();
+        } else {
+            getHandler(mainLooper).post(runnable);
+        }
+    }
+
+    private synchronized Handler getHandler(Looper mainLooper) {
+        if (mHandler == null) {
+            mHandler = new Handler(mainLooper);
+        }
+        return mHandler;
+    }
+
+}
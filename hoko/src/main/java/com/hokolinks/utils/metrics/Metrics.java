@@ -0,0 +1,142 @@
+package com.hokolinks.utils.metrics;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.os.Trace;
+
+import com.hokolinks.utils.log.HokoLog;
+
+/**
+ * Metrics times the stages of the deeplink opening path, the phases of the setup and the network
+ * requests of the SDK with System.nanoTime(), reporting them to a MetricsListener. When no
+ * listener is set, starting a timing returns right away and nothing is recorded.
+ * Setup phases are also wrapped in android.os.Trace sections on Jelly Bean MR2 and above, so they
+ * show up on systrace regardless of the listener.
+ */
+public class Metrics {
+
+    /**
+     * The stages which are timed.
+     */
+    public enum Stage {
+        /** Opening a deeplink URL, from parsing it up to starting its activity. */
+        OPEN,
+        /** Resolving a smartlink into a deeplink, including the network request. */
+        RESOLVE,
+        /** Matching a deeplink URL against the mapped routes. */
+        ROUTE_MATCH,
+        /** Fetching the metadata of a deeplink from the HOKO backend. */
+        METADATA,
+        /** Running the filters. */
+        FILTER,
+        /** Running the synchronous handlers. */
+        HANDLE,
+        /** Running a single handler, named by its class. */
+        HANDLER,
+        /** Executing the route, which usually starts an activity. */
+        EXECUTE,
+        /** Time a request waited on a queue before being performed. */
+        QUEUE_WAIT,
+        /** Round trip of a network request, from connecting to receiving the response. */
+        NETWORK,
+        /** The whole of Hoko.setup(...). */
+        SETUP,
+        /** Constructing Networking, including loading the queue of pending requests from disk. */
+        SETUP_NETWORKING,
+        /** Constructing the Deeplinking module. */
+        SETUP_DEEPLINKING,
+        /** Starting the check for a new SDK version, in debug mode. */
+        SETUP_VERSION_CHECK,
+        /** Loading the route table snapshot, whether or not there is a valid one. */
+        SETUP_SNAPSHOT,
+        /** Listing the activities of the AndroidManifest.xml. */
+        SETUP_ACTIVITIES,
+        /** Mapping the routes of an annotated activity and its fragments, named by its class. */
+        MAP_CLASS,
+        /** Sorting the route table after a route is mapped. */
+        SORT_ROUTES
+    }
+
+    private static final long NOT_TIMED = 0;
+
+    // Trace sections are only available on Jelly Bean MR2 and above
+    private static final boolean TRACING =
+            Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2;
+
+    private static volatile MetricsListener sListener;
+
+    public static void setListener(MetricsListener listener) {
+        sListener = listener;
+    }
+
+    public static boolean isEnabled() {
+        return sListener != null;
+    }
+
+    /**
+     * Starts timing a stage.
+     *
+     * @return The start timestamp to be handed to record(...).
+     */
+    public static long start() {
+        return sListener != null ? System.nanoTime() : NOT_TIMED;
+    }
+
+    /**
+     * Records the duration of a stage which started on a given timestamp. Does nothing in case
+     * the timing was started without a listener.
+     *
+     * @param stage      The stage.
+     * @param name       What the stage acted on, may be null.
+     * @param startNanos The timestamp returned by start().
+     */
+    public static void record(Stage stage, String name, long startNanos) {
+        MetricsListener listener = sListener;
+        if (listener == null || startNanos == NOT_TIMED)
+            return;
+        long durationNanos = System.nanoTime() - startNanos;
+        try {
+            listener.onTiming(stage, name, durationNanos);
+        } catch (RuntimeException e) {
+            HokoLog.e(e);
+        }
+    }
+
+    /**
+     * Opens a trace section and starts timing a stage. Has to be followed by endSection(...) on
+     * the same thread.
+     *
+     * @param sectionName The trace section name, at most 127 characters long.
+     * @return The start timestamp to be handed to endSection(...).
+     */
+    public static long beginSection(String sectionName) {
+        if (TRACING)
+            traceBegin(sectionName);
+        return start();
+    }
+
+    /**
+     * Records the duration of a stage which started on a given timestamp and closes the trace
+     * section opened by beginSection(...).
+     *
+     * @param stage      The stage.
+     * @param name       What the stage acted on, may be null.
+     * @param startNanos The timestamp returned by beginSection(...).
+     */
+    public static void endSection(Stage stage, String name, long startNanos) {
+        record(stage, name, startNanos);
+        if (TRACING)
+            traceEnd();
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR2)
+    private static void traceBegin(String sectionName) {
+        Trace.beginSection(sectionName);
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR2)
+    private static void traceEnd() {
+        Trace.endSection();
+    }
+
+}
@@ -0,0 +1,28 @@
+package com.hokolinks.utils.metrics;
+
+/**
+ * MetricsListener receives the duration of each stage of the deeplink opening path, as well as
+ * of the network requests performed by the SDK, so that they can be exported to an
+ * application's own telemetry.
+ * Timings are reported on the thread where the stage finishes, which may be a background thread.
+ * <pre>{@code
+ * Hoko.setMetricsListener(new MetricsListener() {
+ *     public void onTiming(Metrics.Stage stage, String name, long durationNanos) {
+ *         Telemetry.record("hoko." + stage, durationNanos);
+ *     }
+ * });
+ * }</pre>
+ */
+public interface MetricsListener {
+
+    /**
+     * Called every time a stage finishes.
+     *
+     * @param stage         The stage that finished.
+     * @param name          What the stage acted on (e.g. the route or the request path), may be
+     *                      null.
+     * @param durationNanos The duration of the stage in nanoseconds, from a monotonic clock.
+     */
+    void onTiming(Metrics.Stage stage, String name, long durationNanos);
+
+}
@@ -1,7 +1,15 @@
 package com.hokolinks.utils.networking;
 
+import android.annotation.TargetApi;
+import android.app.job.JobInfo;
+import android.app.job.JobScheduler;
+import android.content.BroadcastReceiver;
+import android.content.ComponentName;
 import android.content.Context;
-import android.util.Log;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.net.ConnectivityManager;
+import android.os.Build;
 
 import com.hokolinks.model.Device;
 import com.hokolinks.utils.Utils;
@@ -14,10 +22,14 @@ import com.hokolinks.utils.networking.async.HttpRequestCallback;
 import org.json.JSONObject;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Timer;
 import java.util.TimerTask;
-import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
 
 import javax.net.ssl.HostnameVerifier;
@@ -26,11 +38,12 @@ import javax.net.ssl.SSLSession;
 
 /**
  * The Networking class is a wrapper around HokoHttpRequests in order to process them in a
- * serial queue, where requests can be retried in case of failure. The flushes are triggered by
- * a timer to avoid clogging the device's network. This class will also handle the persistence of
- * HokoHttpRequests in order to avoid losing any data on application closes/crashes and network
- * problems. It will also only try to flush in case the device recognizes it has internet
- * connectivity.
+ * serial queue, where requests can be retried in case of failure. Requests are batched by a
+ * one-shot timer to avoid clogging the device's network, and flushed right away when the queue
+ * crosses a threshold or the application goes to background. This class will also handle the
+ * persistence of HokoHttpRequests in order to avoid losing any data on application closes/crashes
+ * and network problems. It will also only try to flush in case the device recognizes it has
+ * internet connectivity, otherwise it waits for a connectivity change broadcast instead of polling.
  */
 public class Networking {
 
@@ -38,23 +51,63 @@ public class Networking {
     private static final String HTTP_TASKS_FILENAME = "http_tasks";
 
     // Configuration of the Networking
-    private static final int FLUSH_TIMER_INTERVAL = 30000; // in millis
+    private static final int FLUSH_TIMER_DELAY = 30000; // in millis
+    private static final int FLUSH_THRESHOLD = 10;
+    private static final int FLUSH_JOB_ID = 0x484f4b4f;
     private static final int HTTP_TASKS_NUMBER_OF_RETRIES = 1;
+    private static final int DEFAULT_CAPACITY = 500;
+
+    // Indexes of the counters kept for each endpoint
+    private static final int SUCCESS_COUNTER = 0;
+    private static final int FAILURE_COUNTER = 1;
+    private static final int DROP_COUNTER = 2;
 
     // Static class to avoid duplication of Networking instances
     private static Networking sInstance;
     final private List<HttpRequest> mHttpTasks;
     private Context mContext;
     private Timer mTimer;
+    private final Executor mExecutor;
+    private boolean mFlushing;
+    private boolean mFlushPending;
+    private final List<FlushListener> mFlushListeners = new ArrayList<>();
+    private BroadcastReceiver mConnectivityReceiver;
+    private boolean mBackgroundScheduling;
+    private int mCapacity = DEFAULT_CAPACITY;
+    private OverflowPolicy mOverflowPolicy = OverflowPolicy.DROP_LOWEST_PRIORITY;
+
+    // Stats
+    private final Object mStatsLock = new Object();
+    private final HashMap<String, int[]> mEndpointCounters = new HashMap<>();
+    private int mFlushCount;
+    private long mLastFlushDurationNanos;
+    private long mTotalFlushDurationNanos;
+    private int mSerializationCount;
+    private long mLastSerializationNanos;
+    private long mTotalSerializationNanos;
+    private long mBytesPersisted;
+    private Timer mStatsTimer;
 
     /**
      * Private constructor, will try to load the tasks from file to resume them as soon as possible.
      *
      * @param context A context object.
      */
-    @SuppressWarnings("unchecked")
     private Networking(Context context) {
+        this(context, Executors.newSingleThreadExecutor());
+    }
+
+    /**
+     * Creates a Networking instance which performs its requests on a given executor, will try to
+     * load the tasks from file to resume them as soon as possible.
+     *
+     * @param context  A context object.
+     * @param executor The serial executor on which requests are performed.
+     */
+    @SuppressWarnings("unchecked")
+    Networking(Context context, Executor executor) {
         mContext = context;
+        mExecutor = executor;
         List<HttpRequest> httpTasks;
         try {
             httpTasks = (List<HttpRequest>)
@@ -99,31 +152,218 @@ public class Networking {
 
     /**
      * Executes the pending http request tasks in case the device has internet connectivity,
-     * otherwise it will just reset the timer.
+     * otherwise it will wait for a connectivity change to flush.
      */
     private void flush() {
-        if (mHttpTasks.size() > 0 && Device.hasInternetConnectivity(mContext)) {
+        flush(null);
+    }
+
+    /**
+     * Executes the pending http request tasks in case the device has internet connectivity,
+     * otherwise it will wait for a connectivity change to flush. Only one flush runs at a time,
+     * a flush requested while another is running starts as soon as it finishes.
+     *
+     * @param flushListener A FlushListener to be notified once the flush has finished, or null.
+     */
+    void flush(FlushListener flushListener) {
+        List<FlushListener> flushListeners;
+        synchronized (this) {
+            if (flushListener != null) {
+                mFlushListeners.add(flushListener);
+            }
+            if (mFlushing) {
+                mFlushPending = true;
+                return;
+            }
             stopFlushTimer();
-            executeTasks();
+            boolean hasTasks = hasPendingRequests();
+            if (hasTasks && !hasInternetConnectivity()) {
+                registerConnectivityReceiver();
+            } else if (hasTasks) {
+                unregisterConnectivityReceiver();
+                mFlushing = true;
+                executeTasks();
+                return;
+            } else {
+                unregisterConnectivityReceiver();
+            }
+            flushListeners = takeFlushListeners();
+        }
+        notifyFlushListeners(flushListeners);
+    }
+
+    /**
+     * Called on the executor once all the requests of a flush have been performed, starting the
+     * flush requested in the meantime, if any.
+     *
+     * @param flushStart The System.nanoTime() at which the flush started.
+     */
+    private void onFlushFinished(long flushStart) {
+        recordFlush(System.nanoTime() - flushStart);
+        boolean flushPending;
+        List<FlushListener> flushListeners = null;
+        synchronized (this) {
+            mFlushing = false;
+            flushPending = mFlushPending;
+            mFlushPending = false;
+            if (!flushPending) {
+                flushListeners = takeFlushListeners();
+            }
+        }
+        if (flushPending) {
+            flush();
         } else {
-            startFlushTimer();
+            notifyFlushListeners(flushListeners);
         }
     }
 
+    /**
+     * Takes the listeners waiting for the current flush. Must be called while holding the lock on
+     * the Networking, while the listeners are notified without it.
+     *
+     * @return The FlushListeners.
+     */
+    private List<FlushListener> takeFlushListeners() {
+        if (mFlushListeners.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<FlushListener> flushListeners = new ArrayList<>(mFlushListeners);
+        mFlushListeners.clear();
+        return flushListeners;
+    }
+
+    private void notifyFlushListeners(List<FlushListener> flushListeners) {
+        if (flushListeners.isEmpty()) {
+            return;
+        }
+        boolean hasPendingRequests = hasPendingRequests();
+        for (FlushListener flushListener : flushListeners) {
+            flushListener.onFlushed(hasPendingRequests);
+        }
+    }
+
+    /**
+     * Checks whether there are requests waiting on the queue.
+     *
+     * @return true in case there are, false otherwise.
+     */
+    boolean hasPendingRequests() {
+        synchronized (mHttpTasks) {
+            return mHttpTasks.size() > 0;
+        }
+    }
+
+    /**
+     * Checks whether the device has internet connectivity, so the queue can be flushed.
+     *
+     * @return true in case it has, false otherwise.
+     */
+    boolean hasInternetConnectivity() {
+        return Device.hasInternetConnectivity(mContext);
+    }
+
+    /**
+     * Hands the flush over to the JobScheduler when the application goes to background while the
+     * device is offline, so queued requests are sent once the network returns, even if the process
+     * is no longer alive. Only available on Lollipop and above, disabled by default.
+     *
+     * @param backgroundScheduling true to schedule a job, false otherwise.
+     */
+    public synchronized void setBackgroundScheduling(boolean backgroundScheduling) {
+        mBackgroundScheduling = backgroundScheduling;
+    }
+
+    /**
+     * Limits the number of requests kept on the queue, which also bounds the size of the file the
+     * queue is persisted to. Once the capacity is reached, the overflow policy determines which
+     * request is dropped.
+     *
+     * @param capacity       The maximum number of requests on the queue.
+     * @param overflowPolicy The OverflowPolicy.
+     */
+    public void setCapacity(int capacity, OverflowPolicy overflowPolicy) {
+        synchronized (mHttpTasks) {
+            mCapacity = Math.max(1, capacity);
+            mOverflowPolicy = overflowPolicy;
+            while (mHttpTasks.size() > mCapacity) {
+                HttpRequest droppedRequest = requestToDrop(null);
+                mHttpTasks.remove(droppedRequest);
+                countRequest(droppedRequest, DROP_COUNTER);
+            }
+        }
+        saveTasks();
+    }
+
     /**
      * Adds an http request to the queue, will only add it in case it has not surpassed the maximum
-     * number of retries.
+     * number of retries. Requests which may be merged, such as the routes posted in debug mode,
+     * are merged into an identical one already waiting on the queue, as told by their idempotency
+     * keys, while events are always queued. In case the queue is full, a request is dropped
+     * according to the overflow policy, which may be the one being added.
      *
      * @param httpRequest A HttpRequest object.
      */
     public void addRequest(HttpRequest httpRequest) {
         if (httpRequest.getNumberOfRetries() < HTTP_TASKS_NUMBER_OF_RETRIES) {
             HokoLog.d("Adding request to queue");
+            httpRequest.markQueued();
+            HttpRequest droppedRequest = null;
+            int queueLength;
             synchronized (mHttpTasks) {
-                mHttpTasks.add(httpRequest);
+                for (HttpRequest queuedRequest : mHttpTasks) {
+                    if (queuedRequest.isDuplicateOf(httpRequest)) {
+                        HokoLog.d("Merging duplicate request to " + httpRequest.getEndpoint());
+                        return;
+                    }
+                }
+                if (mHttpTasks.size() >= mCapacity) {
+                    droppedRequest = requestToDrop(httpRequest);
+                    mHttpTasks.remove(droppedRequest);
+                }
+                if (droppedRequest != httpRequest) {
+                    mHttpTasks.add(httpRequest);
+                }
+                queueLength = mHttpTasks.size();
+            }
+            if (droppedRequest != null) {
+                HokoLog.d("Queue is full, dropping request to " + droppedRequest.getEndpoint());
+                countRequest(droppedRequest, DROP_COUNTER);
             }
+            saveTasks();
+            if (queueLength >= FLUSH_THRESHOLD) {
+                flush();
+            } else {
+                startFlushTimer();
+            }
+        } else {
+            countRequest(httpRequest, DROP_COUNTER);
+            saveTasks();
         }
-        saveTasks();
+    }
+
+    /**
+     * Picks the request to drop from a full queue according to the overflow policy. Must be
+     * called while holding the lock on the queue.
+     *
+     * @param newRequest The request being added, or null.
+     * @return The request to drop, which is either on the queue or the new request.
+     */
+    private HttpRequest requestToDrop(HttpRequest newRequest) {
+        if (mOverflowPolicy == OverflowPolicy.DROP_OLDEST) {
+            return mHttpTasks.isEmpty() ? newRequest : mHttpTasks.get(0);
+        }
+
+        // Oldest of the lowest priority requests, the new request being the newest of all
+        HttpRequest requestToDrop = null;
+        for (HttpRequest httpRequest : mHttpTasks) {
+            if (requestToDrop == null || httpRequest.getPriority().ordinal()
+                    < requestToDrop.getPriority().ordinal())
+                requestToDrop = httpRequest;
+        }
+        if (newRequest != null && (requestToDrop == null || newRequest.getPriority().ordinal()
+                < requestToDrop.getPriority().ordinal()))
+            requestToDrop = newRequest;
+        return requestToDrop;
     }
 
     private void removeRequest(HttpRequest httpRequest) {
@@ -138,32 +378,69 @@ public class Networking {
      * failure and re-adding them to the http request queue.
      */
     private void executeTasks() {
-        ExecutorService service = Executors.newFixedThreadPool(1);
+        final long flushStart = System.nanoTime();
         synchronized (mHttpTasks) {
-            for (final HttpRequest httpRequest : mHttpTasks) {
-                service.execute(httpRequest.toRunnable(new HttpRequestCallback() {
+            for (final HttpRequest httpRequest : tasksByPriority()) {
+                final Runnable runnable = toRunnable(httpRequest, new HttpRequestCallback() {
                     @Override
                     public void onSuccess(JSONObject jsonObject) {
                         HokoLog.d("Success " + jsonObject.toString());
+                        countRequest(httpRequest, SUCCESS_COUNTER);
                         removeRequest(httpRequest);
                         saveTasks();
                     }
 
                     @Override
                     public void onFailure(Exception e) {
+                        countRequest(httpRequest, FAILURE_COUNTER);
                         httpRequest.incrementNumberOfRetries();
                         removeRequest(httpRequest);
                         addRequest(httpRequest);
                     }
-                }));
+                });
+                mExecutor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        httpRequest.recordQueueWait();
+                        runnable.run();
+                    }
+                });
             }
         }
-        service.execute(new Runnable() {
+        mExecutor.execute(new Runnable() {
             @Override
             public void run() {
-                startFlushTimer();
+                onFlushFinished(flushStart);
+            }
+        });
+    }
+
+    /**
+     * Transforms a queued HttpRequest to the Runnable which performs it on the executor.
+     *
+     * @param httpRequest  The HttpRequest.
+     * @param httpCallback The HttpRequestCallback object.
+     * @return The runnable wrapper for the request.
+     */
+    Runnable toRunnable(HttpRequest httpRequest, HttpRequestCallback httpCallback) {
+        return httpRequest.toRunnable(httpCallback);
+    }
+
+    /**
+     * Returns the queued requests with the highest priority first, keeping the order in which
+     * they were added within each priority. Must be called while holding the lock on the queue.
+     *
+     * @return A sorted copy of the queue.
+     */
+    private List<HttpRequest> tasksByPriority() {
+        List<HttpRequest> httpTasks = new ArrayList<>(mHttpTasks);
+        Collections.sort(httpTasks, new Comparator<HttpRequest>() {
+            @Override
+            public int compare(HttpRequest httpRequest1, HttpRequest httpRequest2) {
+                return httpRequest2.getPriority().ordinal() - httpRequest1.getPriority().ordinal();
             }
         });
+        return httpTasks;
     }
 
     /**
@@ -171,17 +448,120 @@ public class Networking {
      */
     private void saveTasks() {
         synchronized (mHttpTasks) {
+            long start = System.nanoTime();
             Utils.saveToFile(mHttpTasks, HTTP_TASKS_FILENAME, mContext);
+            recordSerialization(System.nanoTime() - start,
+                    Utils.fileLength(HTTP_TASKS_FILENAME, mContext));
+        }
+    }
+
+    // Stats
+
+    /**
+     * Counts the outcome of a request on its endpoint's counters.
+     *
+     * @param httpRequest The HttpRequest.
+     * @param counter     SUCCESS_COUNTER, FAILURE_COUNTER or DROP_COUNTER.
+     */
+    private void countRequest(HttpRequest httpRequest, int counter) {
+        String endpoint = httpRequest.getEndpoint();
+        synchronized (mStatsLock) {
+            int[] counters = mEndpointCounters.get(endpoint);
+            if (counters == null) {
+                counters = new int[3];
+                mEndpointCounters.put(endpoint, counters);
+            }
+            counters[counter]++;
+        }
+    }
+
+    private void recordFlush(long durationNanos) {
+        synchronized (mStatsLock) {
+            mFlushCount++;
+            mLastFlushDurationNanos = durationNanos;
+            mTotalFlushDurationNanos += durationNanos;
+        }
+    }
+
+    private void recordSerialization(long durationNanos, long bytesPersisted) {
+        synchronized (mStatsLock) {
+            mSerializationCount++;
+            mLastSerializationNanos = durationNanos;
+            mTotalSerializationNanos += durationNanos;
+            mBytesPersisted = bytesPersisted;
         }
     }
 
+    /**
+     * Takes a snapshot of the queue, its persistence and the outcome of the requests performed.
+     *
+     * @return A NetworkingStats object.
+     */
+    public NetworkingStats getStats() {
+        int queueLength;
+        long oldestCreatedAt = Long.MAX_VALUE;
+        synchronized (mHttpTasks) {
+            queueLength = mHttpTasks.size();
+            for (HttpRequest httpRequest : mHttpTasks) {
+                if (httpRequest.getCreatedAt() > 0)
+                    oldestCreatedAt = Math.min(oldestCreatedAt, httpRequest.getCreatedAt());
+            }
+        }
+        long oldestPendingAgeMillis = oldestCreatedAt == Long.MAX_VALUE ? 0
+                : Math.max(0, System.currentTimeMillis() - oldestCreatedAt);
+
+        synchronized (mStatsLock) {
+            HashMap<String, NetworkingStats.EndpointStats> endpointStats = new HashMap<>();
+            for (Map.Entry<String, int[]> entry : mEndpointCounters.entrySet()) {
+                int[] counters = entry.getValue();
+                endpointStats.put(entry.getKey(), new NetworkingStats.EndpointStats(
+                        counters[SUCCESS_COUNTER], counters[FAILURE_COUNTER],
+                        counters[DROP_COUNTER]));
+            }
+            return new NetworkingStats(queueLength, oldestPendingAgeMillis, mBytesPersisted,
+                    mFlushCount, mLastFlushDurationNanos, mTotalFlushDurationNanos,
+                    mSerializationCount, mLastSerializationNanos, mTotalSerializationNanos,
+                    endpointStats);
+        }
+    }
+
+    /**
+     * Periodically hands a NetworkingStats snapshot to a listener, replacing any previously set
+     * listener.
+     *
+     * @param listener       A NetworkingStatsListener object or null to stop.
+     * @param intervalMillis The interval between snapshots in milliseconds.
+     */
+    public synchronized void setStatsListener(final NetworkingStatsListener listener,
+                                              long intervalMillis) {
+        if (mStatsTimer != null) {
+            mStatsTimer.cancel();
+            mStatsTimer = null;
+        }
+        if (listener == null)
+            return;
+
+        mStatsTimer = new Timer(true);
+        mStatsTimer.schedule(new TimerTask() {
+            @Override
+            public void run() {
+                try {
+                    listener.onNetworkingStats(getStats());
+                } catch (RuntimeException e) {
+                    HokoLog.e(e);
+                }
+            }
+        }, intervalMillis, intervalMillis);
+    }
+
     //Timer
 
     /**
-     * Starts the flush timer in case it is stopped, will do nothing otherwise.
+     * Starts the flush timer in case it is stopped, will do nothing otherwise. The timer does not
+     * start while waiting for connectivity, as the connectivity change triggers the flush.
      */
     private synchronized void startFlushTimer() {
-        if (mTimer != null) {
+        if (mTimer != null || mConnectivityReceiver != null) {
             return;
         }
         mTimer = new Timer();
@@ -192,7 +572,7 @@ public class Networking {
                 stopFlushTimer();
                 flush();
             }
-        }, FLUSH_TIMER_INTERVAL);
+        }, FLUSH_TIMER_DELAY);
     }
 
     /**
@@ -205,11 +585,125 @@ public class Networking {
         }
     }
 
+    // Connectivity
+
+    /**
+     * Registers a receiver for connectivity changes, flushing once the device is back online.
+     */
+    private synchronized void registerConnectivityReceiver() {
+        if (mConnectivityReceiver != null) {
+            return;
+        }
+        BroadcastReceiver connectivityReceiver = new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context context, Intent intent) {
+                onConnectivityChanged();
+            }
+        };
+        try {
+            mContext.getApplicationContext().registerReceiver(connectivityReceiver,
+                    new IntentFilter(ConnectivityManager.CONNECTIVITY_ACTION));
+            mConnectivityReceiver = connectivityReceiver;
+        } catch (RuntimeException e) {
+            HokoLog.e(e);
+        }
+    }
+
+    /**
+     * Refreshes the cached connectivity after a connectivity change, flushing in case the device
+     * is back online.
+     */
+    private void onConnectivityChanged() {
+        Device.updateInternetConnectivity(mContext);
+        if (hasInternetConnectivity()) {
+            HokoLog.d("Connectivity regained, flushing requests");
+            flush();
+        }
+    }
+
+    /**
+     * Checks whether the queue is waiting for a connectivity change to flush.
+     *
+     * @return true in case it is, false otherwise.
+     */
+    synchronized boolean isWaitingForConnectivity() {
+        return mConnectivityReceiver != null;
+    }
+
+    /**
+     * Unregisters the connectivity changes receiver, in case it is registered.
+     */
+    private synchronized void unregisterConnectivityReceiver() {
+        if (mConnectivityReceiver == null) {
+            return;
+        }
+        try {
+            mContext.getApplicationContext().unregisterReceiver(mConnectivityReceiver);
+        } catch (RuntimeException e) {
+            HokoLog.e(e);
+        }
+        mConnectivityReceiver = null;
+    }
+
+    // Background scheduling
+
+    /**
+     * Schedules the NetworkingJobService to flush once the device has any network, in case
+     * background scheduling is enabled and there are requests waiting for connectivity.
+     */
+    private synchronized void scheduleBackgroundFlush() {
+        if (!mBackgroundScheduling || mConnectivityReceiver == null
+                || Build.VERSION.SDK_INT < Build.VERSION_CODES.LOLLIPOP) {
+            return;
+        }
+        scheduleFlushJob();
+    }
+
+    @TargetApi(Build.VERSION_CODES.LOLLIPOP)
+    private void scheduleFlushJob() {
+        try {
+            JobScheduler jobScheduler = (JobScheduler) mContext
+                    .getSystemService(Context.JOB_SCHEDULER_SERVICE);
+            JobInfo jobInfo = new JobInfo.Builder(FLUSH_JOB_ID,
+                    new ComponentName(mContext, NetworkingJobService.class))
+                    .setRequiredNetworkType(JobInfo.NETWORK_TYPE_ANY)
+                    .build();
+            if (jobScheduler.schedule(jobInfo) == JobScheduler.RESULT_SUCCESS) {
+                HokoLog.d("Scheduled a job to flush requests once online");
+            }
+        } catch (RuntimeException e) {
+            HokoLog.e(e);
+        }
+    }
+
+    // Overflow
+
+    /**
+     * The possible policies when a request is added to a full queue.
+     * DROP_OLDEST drops the request that has been queued the longest.
+     * DROP_LOWEST_PRIORITY drops the oldest of the lowest priority requests, which may be the one
+     * being added.
+     */
+    public enum OverflowPolicy {
+        DROP_OLDEST, DROP_LOWEST_PRIORITY
+    }
+
+    /**
+     * Notified once a flush has finished, telling whether requests are still waiting on the queue,
+     * either for connectivity or to be retried.
+     */
+    interface FlushListener {
+
+        void onFlushed(boolean hasPendingRequests);
+
+    }
+
     // Application Lifecycle
 
     /**
      * Registers activity lifecycle callbacks to know when the application is in background and
-     * foreground, stopping the timer or flushing.
+     * foreground, flushing on both. Requests still waiting for connectivity on background are
+     * handed to the JobScheduler, in case background scheduling is enabled.
      */
     private void registerActivityLifecycleCallbacks() {
         ApplicationLifecycle.registerApplicationLifecycleCallback(mContext,
@@ -221,7 +715,8 @@ public class Networking {
 
                     @Override
                     public void onPause() {
-                        stopFlushTimer();
+                        flush();
+                        scheduleBackgroundFlush();
                     }
                 });
     }
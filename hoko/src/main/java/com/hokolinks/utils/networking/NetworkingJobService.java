@@ -0,0 +1,36 @@
+package com.hokolinks.utils.networking;
+
+import android.annotation.TargetApi;
+import android.app.job.JobParameters;
+import android.app.job.JobService;
+import android.os.Build;
+
+/**
+ * NetworkingJobService is scheduled by the Networking when the application goes to background
+ * while there are requests waiting for connectivity. It is started by the JobScheduler once the
+ * device has any network, flushing the requests persisted by the Networking, setting it up in case
+ * the application process was not alive. The job is rescheduled in case requests are still
+ * waiting once the flush has finished, or once it is stopped.
+ */
+@TargetApi(Build.VERSION_CODES.LOLLIPOP)
+public class NetworkingJobService extends JobService {
+
+    @Override
+    public boolean onStartJob(final JobParameters jobParameters) {
+        Networking.setupNetworking(getApplicationContext());
+        Networking.getNetworking().flush(new Networking.FlushListener() {
+            @Override
+            public void onFlushed(boolean hasPendingRequests) {
+                jobFinished(jobParameters, hasPendingRequests);
+            }
+        });
+        return true;
+    }
+
+    @Override
+    public boolean onStopJob(JobParameters jobParameters) {
+        Networking networking = Networking.getNetworking();
+        return networking != null && networking.hasPendingRequests();
+    }
+
+}
@@ -0,0 +1,141 @@
+package com.hokolinks.utils.networking;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * NetworkingStats is an immutable snapshot of the Networking queue, of its persistence and of
+ * the outcome of the requests it performed, counted by endpoint (e.g. "installs/android").
+ */
+public class NetworkingStats {
+
+    private final int mQueueLength;
+    private final long mOldestPendingAgeMillis;
+    private final long mBytesPersisted;
+    private final int mFlushCount;
+    private final long mLastFlushDurationNanos;
+    private final long mTotalFlushDurationNanos;
+    private final int mSerializationCount;
+    private final long mLastSerializationNanos;
+    private final long mTotalSerializationNanos;
+    private final Map<String, EndpointStats> mEndpointStats;
+
+    public NetworkingStats(int queueLength, long oldestPendingAgeMillis, long bytesPersisted,
+                           int flushCount, long lastFlushDurationNanos,
+                           long totalFlushDurationNanos, int serializationCount,
+                           long lastSerializationNanos, long totalSerializationNanos,
+                           Map<String, EndpointStats> endpointStats) {
+        mQueueLength = queueLength;
+        mOldestPendingAgeMillis = oldestPendingAgeMillis;
+        mBytesPersisted = bytesPersisted;
+        mFlushCount = flushCount;
+        mLastFlushDurationNanos = lastFlushDurationNanos;
+        mTotalFlushDurationNanos = totalFlushDurationNanos;
+        mSerializationCount = serializationCount;
+        mLastSerializationNanos = lastSerializationNanos;
+        mTotalSerializationNanos = totalSerializationNanos;
+        mEndpointStats = Collections.unmodifiableMap(
+                new HashMap<String, EndpointStats>(endpointStats));
+    }
+
+    public int getQueueLength() {
+        return mQueueLength;
+    }
+
+    /**
+     * The age of the oldest request waiting on the queue.
+     *
+     * @return The age in milliseconds, 0 in case the queue is empty.
+     */
+    public long getOldestPendingAgeMillis() {
+        return mOldestPendingAgeMillis;
+    }
+
+    /**
+     * The size of the file the queue was last persisted to.
+     *
+     * @return The size in bytes.
+     */
+    public long getBytesPersisted() {
+        return mBytesPersisted;
+    }
+
+    public int getFlushCount() {
+        return mFlushCount;
+    }
+
+    public long getLastFlushDurationNanos() {
+        return mLastFlushDurationNanos;
+    }
+
+    public long getTotalFlushDurationNanos() {
+        return mTotalFlushDurationNanos;
+    }
+
+    public int getSerializationCount() {
+        return mSerializationCount;
+    }
+
+    public long getLastSerializationNanos() {
+        return mLastSerializationNanos;
+    }
+
+    public long getTotalSerializationNanos() {
+        return mTotalSerializationNanos;
+    }
+
+    /**
+     * The outcome of the requests performed, by endpoint.
+     *
+     * @return An unmodifiable Map where the keys are endpoints and the values their stats.
+     */
+    public Map<String, EndpointStats> getEndpointStats() {
+        return mEndpointStats;
+    }
+
+    public String toString() {
+        return "<NetworkingStats> queueLength='" + mQueueLength + "' oldestPendingAgeMillis='"
+                + mOldestPendingAgeMillis + "' bytesPersisted='" + mBytesPersisted
+                + "' flushCount='" + mFlushCount + "' lastFlushDurationNanos='"
+                + mLastFlushDurationNanos + "' serializationCount='" + mSerializationCount
+                + "' lastSerializationNanos='" + mLastSerializationNanos + "' endpoints='"
+                + mEndpointStats + "'";
+    }
+
+    /**
+     * EndpointStats counts the requests to an endpoint that succeeded, that failed and that were
+     * dropped from the queue without ever succeeding.
+     */
+    public static class EndpointStats {
+
+        private final int mSuccessCount;
+        private final int mFailureCount;
+        private final int mDropCount;
+
+        public EndpointStats(int successCount, int failureCount, int dropCount) {
+            mSuccessCount = successCount;
+            mFailureCount = failureCount;
+            mDropCount = dropCount;
+        }
+
+        public int getSuccessCount() {
+            return mSuccessCount;
+        }
+
+        public int getFailureCount() {
+            return mFailureCount;
+        }
+
+        public int getDropCount() {
+            return mDropCount;
+        }
+
+        public String toString() {
+            return "<EndpointStats> successes='" + mSuccessCount + "' failures='" + mFailureCount
+                    + "' drops='" + mDropCount + "'";
+        }
+
+    }
+
+}
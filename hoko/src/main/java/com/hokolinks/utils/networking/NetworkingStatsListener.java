@@ -0,0 +1,11 @@
+package com.hokolinks.utils.networking;
+
+/**
+ * NetworkingStatsListener periodically receives a NetworkingStats snapshot, allowing an
+ * application to alert when requests pile up on the device. It is called on a background thread.
+ */
+public interface NetworkingStatsListener {
+
+    void onNetworkingStats(NetworkingStats networkingStats);
+
+}
@@ -1,10 +1,11 @@
 package com.hokolinks.utils.networking.async;
 
 import com.hokolinks.Hoko;
-import com.hokolinks.model.App;
-import com.hokolinks.model.Device;
+import com.hokolinks.model.ClientInfo;
 import com.hokolinks.model.exceptions.HokoException;
+import com.hokolinks.utils.Utils;
 import com.hokolinks.utils.log.HokoLog;
+import com.hokolinks.utils.metrics.Metrics;
 import com.hokolinks.utils.networking.Networking;
 
 import org.json.JSONArray;
@@ -35,6 +36,7 @@ import javax.net.ssl.SSLSession;
 public class HttpRequest implements Serializable, HostnameVerifier{
 
     // Constants
+    private static final long serialVersionUID = 8518498443198536485L;
     private static final int TASK_TIMEOUT = 15000; // millis
     private static final String TASK_VERSION = "v2";
     private static final String TASK_FORMAT = "json";
@@ -47,6 +49,11 @@ public class HttpRequest implements Serializable, HostnameVerifier{
     private String mToken;
     private String mParameters;
     private int mNumberOfRetries;
+    private long mCreatedAt;
+    private HokoNetworkPriority mPriority;
+    private String mIdempotencyKey;
+    private boolean mMergeDuplicates;
+    private transient long mQueuedAt;
 
     /**
      * Creates a request with a type, path, token and parameters.
@@ -58,11 +65,50 @@ public class HttpRequest implements Serializable, HostnameVerifier{
      */
     public HttpRequest(HokoNetworkOperationType operationType, String url, String token,
                        String parameters) {
+        this(operationType, url, token, parameters, HokoNetworkPriority.NORMAL);
+    }
+
+    /**
+     * Creates a request with a type, path, token, parameters and a priority, which determines the
+     * order in which queued requests are flushed and which are kept when the queue is full.
+     *
+     * @param operationType The operation type (e.g. GET/PUT/POST).
+     * @param url           The url (e.g. "https://api.hokolinks.com/v1/routes.json").
+     * @param token         The application token.
+     * @param parameters    The parameters in json string form.
+     * @param priority      The priority of the request.
+     */
+    public HttpRequest(HokoNetworkOperationType operationType, String url, String token,
+                       String parameters, HokoNetworkPriority priority) {
+        this(operationType, url, token, parameters, priority, false);
+    }
+
+    /**
+     * Creates a request with a type, path, token, parameters, a priority and whether it may be
+     * merged into an identical request already waiting on a queue. Only requests which describe
+     * state, such as the routes posted in debug mode, should be merged, as every event (e.g. an
+     * install or a Smartlink open) has to reach the HOKO backend even if its parameters are the
+     * same as another's.
+     *
+     * @param operationType   The operation type (e.g. GET/PUT/POST).
+     * @param url             The url (e.g. "https://api.hokolinks.com/v1/routes.json").
+     * @param token           The application token.
+     * @param parameters      The parameters in json string form.
+     * @param priority        The priority of the request.
+     * @param mergeDuplicates true in case the request may be merged into an identical one.
+     */
+    public HttpRequest(HokoNetworkOperationType operationType, String url, String token,
+                       String parameters, HokoNetworkPriority priority, boolean mergeDuplicates) {
+        mPriority = priority;
         mOperationType = operationType;
         mUrl = url.contains("http") ? url : HttpRequest.getURLFromPath(url);
         mToken = token;
         mParameters = parameters;
         mNumberOfRetries = 0;
+        mCreatedAt = System.currentTimeMillis();
+        mMergeDuplicates = mergeDuplicates;
+        // Generated right away so it is persisted with the request
+        getIdempotencyKey();
     }
 
     // Constructors
@@ -82,14 +128,6 @@ public class HttpRequest implements Serializable, HostnameVerifier{
                 + TASK_FORMAT;
     }
 
-    private static String getUserAgent() {
-        String environment = App.getEnvironment(Networking.getNetworking().getContext());
-
-        return "HOKO/" + Hoko.VERSION + " (" + environment + "; Linux; " + Device.getPlatform() + " " +
-                Device.getSystemReleaseVersion() + "; " + Device.getVendor() + " " + Device.getModel() +
-                " Build/" + Device.getBuildNumber() + ")";
-    }
-
     private static String urlEncode(String url, String jsonString) {
         if (jsonString == null) {
             return url;
@@ -136,6 +174,84 @@ public class HttpRequest implements Serializable, HostnameVerifier{
         return mToken;
     }
 
+    /**
+     * Returns the priority of the request, requests persisted by previous versions of the SDK
+     * have NORMAL priority.
+     *
+     * @return The priority.
+     */
+    public HokoNetworkPriority getPriority() {
+        return mPriority != null ? mPriority : HokoNetworkPriority.NORMAL;
+    }
+
+    /**
+     * Returns the idempotency key of the request, which is sent on the Idempotency-Key header so
+     * the HOKO backend can safely discard retries. Requests which may be merged have a key made
+     * of their endpoint and a SHA-256 hash of their operation, url and parameters
+     * (e.g. "routes-9f86d08..."), shared by identical requests. Any other request has a key made
+     * of its endpoint and a UUID generated once, which is persisted with the request and kept
+     * across its retries. Requests persisted by previous versions of the SDK have their key
+     * generated the first time it is needed.
+     *
+     * @return The idempotency key.
+     */
+    public synchronized String getIdempotencyKey() {
+        if (mIdempotencyKey == null) {
+            if (mMergeDuplicates) {
+                mIdempotencyKey = getEndpoint() + "-" + Utils.sha256(mOperationType + "\n"
+                        + mUrl + "\n" + (mParameters != null ? mParameters : ""));
+            } else {
+                mIdempotencyKey = getEndpoint() + "-" + Utils.generateUUID();
+            }
+        }
+        return mIdempotencyKey;
+    }
+
+    /**
+     * Checks whether another request may be merged into this one, which is the case when both
+     * may be merged and perform the same operation, on the same url, with the same parameters,
+     * as told by their idempotency keys.
+     *
+     * @param httpRequest The other HttpRequest.
+     * @return true if it is a duplicate, false otherwise.
+     */
+    public boolean isDuplicateOf(HttpRequest httpRequest) {
+        return mMergeDuplicates && httpRequest.mMergeDuplicates
+                && getIdempotencyKey().equals(httpRequest.getIdempotencyKey());
+    }
+
+    /**
+     * Returns the HOKO API endpoint of the request, which is the path without the version and
+     * format (e.g. "installs/android"), or the full path for requests to other hosts.
+     *
+     * @return The endpoint.
+     */
+    public String getEndpoint() {
+        String path;
+        try {
+            path = new URL(mUrl).getPath();
+        } catch (MalformedURLException e) {
+            return mUrl;
+        }
+        String versionPrefix = "/" + TASK_VERSION + "/";
+        String formatSuffix = "." + TASK_FORMAT;
+        if (path.startsWith(versionPrefix))
+            path = path.substring(versionPrefix.length());
+        if (path.endsWith(formatSuffix))
+            path = path.substring(0, path.length() - formatSuffix.length());
+        return path;
+    }
+
+    /**
+     * Returns when the request was created, requests persisted by previous versions of the SDK
+     * return 0.
+     *
+     * @return The creation time in milliseconds since the epoch.
+     */
+    public long getCreatedAt() {
+        return mCreatedAt;
+    }
+
     // Runnable
 
     public String getParameters() {
@@ -152,6 +268,21 @@ public class HttpRequest implements Serializable, HostnameVerifier{
         mNumberOfRetries++;
     }
 
+    /**
+     * Marks the moment the request was added to a queue, so the time it waited to be performed
+     * can be recorded.
+     */
+    public void markQueued() {
+        mQueuedAt = Metrics.start();
+    }
+
+    /**
+     * Records the time the request waited on a queue since markQueued() was called.
+     */
+    public void recordQueueWait() {
+        Metrics.record(Metrics.Stage.QUEUE_WAIT, mUrl, mQueuedAt);
+    }
+
     /**
      * Transforms the HttpRequest to a Runnable object so it can execute the request
      * on a background thread, usually inside a NetworkAsyncTask object.
@@ -165,7 +296,8 @@ public class HttpRequest implements Serializable, HostnameVerifier{
     /**
      * Transforms the HttpRequest to a Runnable object with a callback so it can execute the
      * request on a background thread, usually inside a NetworkAsyncTask object. It will then call
-     * the callback functions accordingly.
+     * the callback functions accordingly. The time spent on the network is recorded once the
+     * response is read, before the callback functions are called.
      *
      * @param httpCallback The HttpRequestCallback object.e
      * @return The runnable wrapper for the request.
@@ -174,21 +306,23 @@ public class HttpRequest implements Serializable, HostnameVerifier{
         return new Runnable() {
             @Override
             public void run() {
+                long start = Metrics.start();
                 try {
                     switch (mOperationType) {
                         case GET:
-                            performGET(httpCallback);
+                            performGET(httpCallback, start);
                             break;
                         case POST:
-                            performPOST(httpCallback);
+                            performPOST(httpCallback, start);
                             break;
                         case PUT:
-                            performPUT(httpCallback);
+                            performPUT(httpCallback, start);
                             break;
                         default:
                             break;
                     }
                 } catch (IOException e) {
+                    Metrics.record(Metrics.Stage.NETWORK, mUrl, start);
                     HokoLog.e(e);
                     if (httpCallback != null)
                         httpCallback.onFailure(e);
@@ -202,6 +336,7 @@ public class HttpRequest implements Serializable, HostnameVerifier{
         connection.setReadTimeout(TASK_TIMEOUT);
         connection.setRequestProperty("Accept", "application/json");
         connection.setRequestProperty("Accept-Encoding", "gzip, deflate");
+        connection.setRequestProperty("Idempotency-Key", getIdempotencyKey());
         if (postOrPut) {
             connection.setRequestProperty("Content-Type", "application/json; charset=utf-8");
         }
@@ -209,9 +344,9 @@ public class HttpRequest implements Serializable, HostnameVerifier{
             connection.setRequestProperty("Authorization", "Token " + getToken());
             connection.setRequestProperty("Hoko-SDK-Version", Hoko.VERSION);
             if (Networking.getNetworking() != null) {
-                connection.setRequestProperty("User-Agent", HttpRequest.getUserAgent());
-                connection.setRequestProperty("Hoko-SDK-Env",
-                        App.getEnvironment(Networking.getNetworking().getContext()));
+                ClientInfo clientInfo = ClientInfo.get(Networking.getNetworking().getContext());
+                connection.setRequestProperty("User-Agent", clientInfo.getUserAgent());
+                connection.setRequestProperty("Hoko-SDK-Env", clientInfo.getEnvironment());
             }
         }
     }
@@ -227,25 +362,27 @@ public class HttpRequest implements Serializable, HostnameVerifier{
      * Performs an HttpGet to the specified url, will handle the response with the callback.
      *
      * @param httpCallback The HttpRequestCallback object.
+     * @param start        When the request started, as returned by Metrics.start().
      * @throws IOException Throws an IOException in case of a network problem.
      */
-    private void performGET(HttpRequestCallback httpCallback) throws IOException {
+    private void performGET(HttpRequestCallback httpCallback, long start) throws IOException {
         URL url = getUrl();
         HttpURLConnection connection = (HttpURLConnection) url.openConnection();
         applyHttpsHostnameVerifier(connection, url);
         connection.setRequestMethod("GET");
         applyHeaders(connection, false);
         HokoLog.d("GET from " + getUrl());
-        handleHttpResponse(connection, httpCallback);
+        handleHttpResponse(connection, httpCallback, start);
     }
 
     /**
      * Performs an HttpPut to the specified url, will handle the response with the callback.
      *
      * @param httpCallback The HttpRequestCallback object.
+     * @param start        When the request started, as returned by Metrics.start().
      * @throws IOException Throws an IOException in case of a network problem.
      */
-    private void performPUT(HttpRequestCallback httpCallback) throws IOException {
+    private void performPUT(HttpRequestCallback httpCallback, long start) throws IOException {
         URL url = getUrl();
         HttpURLConnection connection = (HttpURLConnection) url.openConnection();
         applyHttpsHostnameVerifier(connection, url);
@@ -260,16 +397,17 @@ public class HttpRequest implements Serializable, HostnameVerifier{
             outputStreamWriter.close();
         }
         HokoLog.d("PUT to " + getUrl());
-        handleHttpResponse(connection, httpCallback);
+        handleHttpResponse(connection, httpCallback, start);
     }
 
     /**
      * Performs an HttpPost to the specified url, will handle the response with the callback.
      *
      * @param httpCallback The HttpRequestCallback object.
+     * @param start        When the request started, as returned by Metrics.start().
      * @throws IOException Throws an IOException in case of a network problem.
      */
-    private void performPOST(HttpRequestCallback httpCallback) throws IOException {
+    private void performPOST(HttpRequestCallback httpCallback, long start) throws IOException {
         URL url = getUrl();
         HttpURLConnection connection = (HttpURLConnection) url.openConnection();
         applyHttpsHostnameVerifier(connection, url);
@@ -285,19 +423,21 @@ public class HttpRequest implements Serializable, HostnameVerifier{
             outputStreamWriter.close();
         }
 
-        handleHttpResponse(connection, httpCallback);
+        handleHttpResponse(connection, httpCallback, start);
     }
 
     /**
      * The HttpResponse handler, tries to parse the response into json, checks the status code and
-     * throws exceptions accordingly. Will also use the callback to notify of the response given.
+     * throws exceptions accordingly. Will also use the callback to notify of the response given,
+     * once the time spent on the network is recorded.
      *
      * @param connection   The HttpURLConnection object coming from a GET/POST/PUT URL connection.
      * @param httpCallback The HttpRequestCallback object.
+     * @param start        When the request started, as returned by Metrics.start().
      * @throws IOException Throws an IOException in case of a network problem.
      */
-    private void handleHttpResponse(HttpURLConnection connection, HttpRequestCallback httpCallback)
-            throws IOException {
+    private void handleHttpResponse(HttpURLConnection connection, HttpRequestCallback httpCallback,
+                                    long start) throws IOException {
         InputStream input = connection.getErrorStream();
         if (input == null) {
             input = connection.getInputStream();
@@ -316,7 +456,9 @@ public class HttpRequest implements Serializable, HostnameVerifier{
                 jsonResponse = new JSONObject();
             }
         }
-        if (connection.getResponseCode() >= 300) {
+        int responseCode = connection.getResponseCode();
+        Metrics.record(Metrics.Stage.NETWORK, mUrl, start);
+        if (responseCode >= 300) {
             HokoException exception = HokoException.serverException(jsonResponse);
             HokoLog.e(exception);
             if (httpCallback != null) {
@@ -364,4 +506,13 @@ public class HttpRequest implements Serializable, HostnameVerifier{
         GET, POST, PUT
     }
 
+    /**
+     * The possible network priorities: LOW, NORMAL and HIGH. Higher priority requests are
+     * flushed first and are the last to be dropped from a full queue.
+     * Serializable for saving HokoHttpRequests to file.
+     */
+    public enum HokoNetworkPriority implements Serializable {
+        LOW, NORMAL, HIGH
+    }
+
 }
@@ -2,6 +2,8 @@ package com.hokolinks.utils.networking.async;
 
 import android.os.AsyncTask;
 
+import com.hokolinks.utils.metrics.Metrics;
+
 /**
  * An easy to use wrapper around the AsyncTask, by providing a Runnable it executes in the
  * background thread. (Used on GoogleCloudMessaging calls)
@@ -9,13 +11,17 @@ import android.os.AsyncTask;
 public class NetworkAsyncTask extends AsyncTask<Void, Void, Void> {
 
     private Runnable mRunnable;
+    private long mQueuedAt;
 
     public NetworkAsyncTask(Runnable runnable) {
         mRunnable = runnable;
+        mQueuedAt = Metrics.start();
     }
 
     @Override
     protected Void doInBackground(Void... voids) {
+        Metrics.record(Metrics.Stage.QUEUE_WAIT, NetworkAsyncTask.class.getSimpleName(),
+                mQueuedAt);
         mRunnable.run();
         return null;
     }
@@ -0,0 +1,95 @@
+package com.hokolinks.deeplinking;
+
+import com.hokolinks.BuildConfig;
+import com.hokolinks.model.AsyncFilterCallback;
+import com.hokolinks.model.Deeplink;
+import com.hokolinks.tests.HokoGradleTestRunner;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.annotation.Config;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+/**
+ * Tests that the timer thread of the asynchronous filter deadlines is only kept while it can
+ * still be needed. Lives in the deeplinking package to reach the package-private Filtering
+ * internals.
+ */
+@RunWith(HokoGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class FilteringTimerTest {
+
+    private static final Executor DIRECT_EXECUTOR = new Executor() {
+        @Override
+        public void execute(Runnable runnable) {
+            runnable.run();
+        }
+    };
+
+    private static final AsyncFilterCallback.FilterDecision IGNORED_DECISION =
+            new AsyncFilterCallback.FilterDecision() {
+                @Override
+                public void decide(boolean openDeeplink) {
+                }
+            };
+
+    @Test
+    public void testTimerIsCancelledOnceTheLastAsyncFilterIsRemoved() {
+        Filtering filtering = new Filtering();
+        filtering.setAsyncExecutor(DIRECT_EXECUTOR);
+        AsyncFilterCallback firstFilter = new DecidingFilter();
+        AsyncFilterCallback secondFilter = new DecidingFilter();
+        filtering.addFilter(firstFilter, 10000, true);
+        filtering.addFilter(secondFilter, 10000, true);
+        assertThat(filtering.hasTimer()).isFalse();
+
+        filtering.filter(Deeplink.deeplink("product"), IGNORED_DECISION);
+        // Kept for the next deeplink while async filters remain
+        assertThat(filtering.hasTimer()).isTrue();
+
+        filtering.removeFilter(firstFilter);
+        assertThat(filtering.hasTimer()).isTrue();
+        filtering.removeFilter(secondFilter);
+        assertThat(filtering.hasTimer()).isFalse();
+    }
+
+    @Test
+    public void testTimerOutlivesRemovedFilterUntilItsDeadline() throws InterruptedException {
+        final CountDownLatch lock = new CountDownLatch(1);
+        Filtering filtering = new Filtering();
+        filtering.setAsyncExecutor(DIRECT_EXECUTOR);
+        AsyncFilterCallback silentFilter = new AsyncFilterCallback() {
+            @Override
+            public void openDeeplink(Deeplink deeplink, FilterDecision decision) {
+            }
+        };
+        filtering.addFilter(silentFilter, 100, false);
+
+        filtering.filter(Deeplink.deeplink("product"), new AsyncFilterCallback.FilterDecision() {
+            @Override
+            public void decide(boolean openDeeplink) {
+                lock.countDown();
+            }
+        });
+        filtering.removeFilter(silentFilter);
+        // The pending deadline still takes the default decision
+        assertThat(filtering.hasTimer()).isTrue();
+
+        assertThat(lock.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(filtering.hasTimer()).isFalse();
+    }
+
+    private static class DecidingFilter implements AsyncFilterCallback {
+
+        @Override
+        public void openDeeplink(Deeplink deeplink, FilterDecision decision) {
+            decision.decide(true);
+        }
+    }
+
+}
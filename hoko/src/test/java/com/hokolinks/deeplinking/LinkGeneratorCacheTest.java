@@ -0,0 +1,198 @@
+package com.hokolinks.deeplinking;
+
+import com.hokolinks.BuildConfig;
+import com.hokolinks.deeplinking.listeners.LinkGenerationListener;
+import com.hokolinks.model.Deeplink;
+import com.hokolinks.model.PrefetchStatistics;
+import com.hokolinks.tests.HokoGradleTestRunner;
+import com.hokolinks.utils.networking.async.HttpRequestCallback;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+/**
+ * Tests the Smartlink cache, the sharing of requests in flight and the prefetch counters of the
+ * LinkGenerator, answering the Smartlink requests by hand instead of hitting the network.
+ * Lives in the deeplinking package to reach the package-private LinkGenerator.
+ */
+@RunWith(HokoGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class LinkGeneratorCacheTest {
+
+    @Test
+    public void testConcurrentRequestsShareOneRequest() throws JSONException {
+        TestLinkGenerator linkGenerator = new TestLinkGenerator(new QueuedExecutor());
+        RecordingListener first = new RecordingListener();
+        RecordingListener second = new RecordingListener();
+
+        linkGenerator.requestForSmartlink(deeplink("1", false), first);
+        linkGenerator.requestForSmartlink(deeplink("1", false), second);
+        assertThat(linkGenerator.mFetches.size()).isEqualTo(1);
+
+        linkGenerator.respond(0, "http://hoko.link/1");
+        assertThat(first.mSmartlinks).isEqualTo(smartlinks("http://hoko.link/1"));
+        assertThat(second.mSmartlinks).isEqualTo(smartlinks("http://hoko.link/1"));
+        assertThat(linkGenerator.getPrefetchStatistics().getMissCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void testUniqueRequestsAreNotShared() throws JSONException {
+        TestLinkGenerator linkGenerator = new TestLinkGenerator(new QueuedExecutor());
+        RecordingListener first = new RecordingListener();
+        RecordingListener second = new RecordingListener();
+
+        linkGenerator.requestForSmartlink(deeplink("1", true), first);
+        linkGenerator.requestForSmartlink(deeplink("1", true), second);
+        assertThat(linkGenerator.mFetches.size()).isEqualTo(2);
+
+        linkGenerator.respond(1, "http://hoko.link/B");
+        linkGenerator.respond(0, "http://hoko.link/A");
+        assertThat(first.mSmartlinks).isEqualTo(smartlinks("http://hoko.link/A"));
+        assertThat(second.mSmartlinks).isEqualTo(smartlinks("http://hoko.link/B"));
+
+        // Neither was cached, as both were used
+        linkGenerator.requestForSmartlink(deeplink("1", true), new RecordingListener());
+        assertThat(linkGenerator.mFetches.size()).isEqualTo(3);
+    }
+
+    @Test
+    public void testPrefetchServesLaterRequestFromCache() throws JSONException {
+        QueuedExecutor prefetchExecutor = new QueuedExecutor();
+        TestLinkGenerator linkGenerator = new TestLinkGenerator(prefetchExecutor);
+        RecordingListener listener = new RecordingListener();
+
+        linkGenerator.prefetch(deeplink("1", false));
+        prefetchExecutor.runAll();
+        linkGenerator.respond(0, "http://hoko.link/1");
+        linkGenerator.requestForSmartlink(deeplink("1", false), listener);
+
+        assertThat(linkGenerator.mFetches.size()).isEqualTo(1);
+        assertThat(listener.mSmartlinks).isEqualTo(smartlinks("http://hoko.link/1"));
+        PrefetchStatistics statistics = linkGenerator.getPrefetchStatistics();
+        assertThat(statistics.getPrefetchCount()).isEqualTo(1);
+        assertThat(statistics.getHitCount()).isEqualTo(1);
+        assertThat(statistics.getMissCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void testQueuedPrefetchIsPromoted() throws JSONException {
+        QueuedExecutor prefetchExecutor = new QueuedExecutor();
+        TestLinkGenerator linkGenerator = new TestLinkGenerator(prefetchExecutor);
+        RecordingListener listener = new RecordingListener();
+
+        linkGenerator.prefetch(deeplink("1", false));
+        linkGenerator.requestForSmartlink(deeplink("1", false), listener);
+        assertThat(linkGenerator.mFetches.size()).isEqualTo(1);
+
+        // The prefetch queue catching up does not hit the network again
+        prefetchExecutor.runAll();
+        assertThat(linkGenerator.mFetches.size()).isEqualTo(1);
+
+        linkGenerator.respond(0, "http://hoko.link/1");
+        assertThat(listener.mSmartlinks).isEqualTo(smartlinks("http://hoko.link/1"));
+        assertThat(linkGenerator.getPrefetchStatistics().getHitCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void testCacheEvictsLeastRecentlyUsed() throws JSONException {
+        QueuedExecutor prefetchExecutor = new QueuedExecutor();
+        TestLinkGenerator linkGenerator = new TestLinkGenerator(prefetchExecutor);
+
+        for (int index = 0; index <= 20; index++) {
+            linkGenerator.prefetch(deeplink(String.valueOf(index), false));
+            prefetchExecutor.runAll();
+            linkGenerator.respond(index, "http://hoko.link/" + index);
+        }
+        assertThat(linkGenerator.getPrefetchStatistics().getWastedCount()).isEqualTo(1);
+
+        linkGenerator.requestForSmartlink(deeplink("20", false), new RecordingListener());
+        assertThat(linkGenerator.mFetches.size()).isEqualTo(21);
+        linkGenerator.requestForSmartlink(deeplink("0", false), new RecordingListener());
+        assertThat(linkGenerator.mFetches.size()).isEqualTo(22);
+
+        PrefetchStatistics statistics = linkGenerator.getPrefetchStatistics();
+        assertThat(statistics.getHitCount()).isEqualTo(1);
+        assertThat(statistics.getMissCount()).isEqualTo(1);
+    }
+
+    private static Deeplink deeplink(final String productId, boolean isUnique) {
+        return Deeplink.deeplink("product/:product_id", new HashMap<String, String>() {
+            {
+                put("product_id", productId);
+            }
+        }, null, null, isUnique);
+    }
+
+    private static List<String> smartlinks(String smartlink) {
+        List<String> smartlinks = new ArrayList<>();
+        smartlinks.add(smartlink);
+        return smartlinks;
+    }
+
+    private static class TestLinkGenerator extends LinkGenerator {
+
+        private final List<HttpRequestCallback> mFetches = new ArrayList<>();
+
+        TestLinkGenerator(Executor prefetchExecutor) {
+            super("token", prefetchExecutor);
+        }
+
+        @Override
+        void executeRequest(Runnable request) {
+            request.run();
+        }
+
+        @Override
+        void fetchSmartlink(String payload, HttpRequestCallback callback) {
+            mFetches.add(callback);
+        }
+
+        void respond(int index, String smartlink) throws JSONException {
+            mFetches.get(index).onSuccess(new JSONObject().put("smartlink", smartlink));
+        }
+    }
+
+    private static class QueuedExecutor implements Executor {
+
+        private final List<Runnable> mQueue = new ArrayList<>();
+
+        @Override
+        public void execute(Runnable runnable) {
+            mQueue.add(runnable);
+        }
+
+        void runAll() {
+            List<Runnable> queue = new ArrayList<>(mQueue);
+            mQueue.clear();
+            for (Runnable runnable : queue) {
+                runnable.run();
+            }
+        }
+    }
+
+    private static class RecordingListener implements LinkGenerationListener {
+
+        private final List<String> mSmartlinks = new ArrayList<>();
+
+        @Override
+        public void onLinkGenerated(String smartlink) {
+            mSmartlinks.add(smartlink);
+        }
+
+        @Override
+        public void onError(Exception e) {
+            mSmartlinks.add(null);
+        }
+    }
+
+}
@@ -0,0 +1,185 @@
+package com.hokolinks.deeplinking;
+
+import com.hokolinks.BuildConfig;
+import com.hokolinks.Hoko;
+import com.hokolinks.deeplinking.annotations.DeeplinkDefaultRoute;
+import com.hokolinks.deeplinking.annotations.DeeplinkQueryParameter;
+import com.hokolinks.deeplinking.annotations.DeeplinkRoute;
+import com.hokolinks.deeplinking.annotations.DeeplinkRouteParameter;
+import com.hokolinks.model.IntentRouteImpl;
+import com.hokolinks.model.Route;
+import com.hokolinks.model.URL;
+import com.hokolinks.tests.HokoGradleTestRunner;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+/**
+ * Tests the route table snapshot, from writing the routes of a Routing instance to mapping them
+ * back as lazy routes, as well as the snapshots which have to be ignored.
+ * Lives in the deeplinking package to reach the package-private RouteTableSnapshot.
+ */
+@RunWith(HokoGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class RouteTableSnapshotTest {
+
+    private static final String VERSION_CODE = "42";
+    private static final long LAST_UPDATE_TIME = 1445000000000L;
+
+    @DeeplinkDefaultRoute
+    public static class HomeActivity {
+
+        @DeeplinkQueryParameter("utm_source")
+        String mSource;
+
+    }
+
+    @DeeplinkRoute("product/:product_id")
+    public static class ProductActivity {
+
+        @DeeplinkRouteParameter("product_id")
+        String mProductId;
+
+        @DeeplinkQueryParameter("coupon")
+        String mCoupon;
+
+    }
+
+    @BeforeClass
+    public static void setUp() {
+        Hoko.setVerbose(false);
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException, NoSuchFieldException {
+        Routing routing = loadSnapshot(writeSnapshot(), VERSION_CODE, LAST_UPDATE_TIME);
+        assertThat(routing).isNotNull();
+
+        IntentRouteImpl productRoute = (IntentRouteImpl) routing.getRoute("product/:product_id");
+        assertThat(productRoute.isResolved()).isFalse();
+        assertThat(productRoute.getActivityClassName()).isEqualTo(ProductActivity.class.getName());
+        assertThat(productRoute.getRouteParameterBindings().size()).isEqualTo(1);
+        assertThat(productRoute.getQueryParameterBindings().size()).isEqualTo(1);
+        assertThat(AnnotationParser.resolveRoute(productRoute)).isTrue();
+        assertThat(productRoute.getRouteParameters().get("product_id"))
+                .isEqualTo(ProductActivity.class.getDeclaredField("mProductId"));
+        assertThat(productRoute.getQueryParameters().get("coupon"))
+                .isEqualTo(ProductActivity.class.getDeclaredField("mCoupon"));
+
+        IntentRouteImpl defaultRoute = (IntentRouteImpl) routing.getRoute(null);
+        assertThat(defaultRoute.getActivityClassName()).isEqualTo(HomeActivity.class.getName());
+        assertThat(defaultRoute.getRouteParameterBindings()).isNull();
+        assertThat(AnnotationParser.resolveRoute(defaultRoute)).isTrue();
+        assertThat(defaultRoute.getQueryParameters().get("utm_source"))
+                .isEqualTo(HomeActivity.class.getDeclaredField("mSource"));
+    }
+
+    @Test
+    public void testUnmatchedURLFallsBackToDefaultRoute() throws IOException,
+            NoSuchFieldException {
+        Routing routing = loadSnapshot(writeSnapshot(), VERSION_CODE, LAST_UPDATE_TIME);
+
+        // Resolves the lazily mapped default route on the first unmatched deeplink
+        Route route = routing.routeForURL(new URL("hoko://missing/route"));
+        assertThat(route).isSameAs(routing.getRoute(null));
+        assertThat(((IntentRouteImpl) route).isResolved()).isTrue();
+        assertThat(routing.routeForURL(new URL("hoko://product/1234")))
+                .isSameAs(routing.getRoute("product/:product_id"));
+    }
+
+    @Test
+    public void testVersionMismatch() throws IOException, NoSuchFieldException {
+        byte[] snapshot = writeSnapshot();
+        assertThat(loadSnapshot(snapshot, "43", LAST_UPDATE_TIME)).isNull();
+        // Reinstalled or updated without a versionCode bump
+        assertThat(loadSnapshot(snapshot, VERSION_CODE, LAST_UPDATE_TIME + 1)).isNull();
+    }
+
+    @Test
+    public void testTruncatedSnapshot() throws IOException, NoSuchFieldException {
+        byte[] snapshot = writeSnapshot();
+        for (int length = 0; length < snapshot.length; length++) {
+            assertThat(loadSnapshot(Arrays.copyOf(snapshot, length), VERSION_CODE,
+                    LAST_UPDATE_TIME)).isNull();
+        }
+    }
+
+    @Test
+    public void testCorruptSnapshot() throws IOException, NoSuchFieldException {
+        byte[] snapshot = writeSnapshot();
+        // A huge string length right after the magic number and format version
+        ByteBuffer.wrap(snapshot).putInt(8, Integer.MAX_VALUE);
+        assertThat(loadSnapshot(snapshot, VERSION_CODE, LAST_UPDATE_TIME)).isNull();
+
+        assertThat(loadSnapshot(new byte[]{1, 2, 3, 4, 5, 6, 7, 8}, VERSION_CODE,
+                LAST_UPDATE_TIME)).isNull();
+    }
+
+    @Test
+    public void testCorruptCount() throws IOException, NoSuchFieldException {
+        byte[] snapshot = writeSnapshot();
+        // The route count follows the header, which ends with the SDK version
+        int countPosition = 8 + 4 + VERSION_CODE.length() + 8 + 4
+                + Hoko.VERSION.getBytes("UTF-8").length;
+        ByteBuffer.wrap(snapshot).putInt(countPosition, Integer.MAX_VALUE);
+        assertThat(loadSnapshot(snapshot, VERSION_CODE, LAST_UPDATE_TIME)).isNull();
+    }
+
+    @Test
+    public void testMissingFieldFallsBackToAnnotations() throws NoSuchFieldException {
+        Routing routing = new Routing("token", RuntimeEnvironment.application, new Handling(),
+                new Filtering());
+        HashMap<String, String> routeParameterBindings = new HashMap<>();
+        routeParameterBindings.put("product_id", ProductActivity.class.getName() + "#mRemovedId");
+        HashMap<String, String> queryParameterBindings = new HashMap<>();
+        routing.mapLazyRoute("product/:product_id", ProductActivity.class.getName(),
+                routeParameterBindings, queryParameterBindings);
+
+        IntentRouteImpl productRoute = (IntentRouteImpl) routing.getRoute("product/:product_id");
+        assertThat(AnnotationParser.resolveRoute(productRoute)).isTrue();
+        assertThat(productRoute.getRouteParameters().get("product_id"))
+                .isEqualTo(ProductActivity.class.getDeclaredField("mProductId"));
+        assertThat(productRoute.getQueryParameters().get("coupon"))
+                .isEqualTo(ProductActivity.class.getDeclaredField("mCoupon"));
+    }
+
+    private static byte[] writeSnapshot() throws IOException, NoSuchFieldException {
+        Routing routing = new Routing("token", RuntimeEnvironment.application, new Handling(),
+                new Filtering());
+
+        HashMap<String, Field> routeParameters = new HashMap<>();
+        routeParameters.put("product_id", ProductActivity.class.getDeclaredField("mProductId"));
+        HashMap<String, Field> queryParameters = new HashMap<>();
+        queryParameters.put("coupon", ProductActivity.class.getDeclaredField("mCoupon"));
+        routing.mapActivityRoute("product/:product_id", ProductActivity.class, routeParameters,
+                queryParameters);
+
+        HashMap<String, Field> defaultQueryParameters = new HashMap<>();
+        defaultQueryParameters.put("utm_source", HomeActivity.class.getDeclaredField("mSource"));
+        routing.mapActivityRoute(null, HomeActivity.class, null, defaultQueryParameters);
+
+        return RouteTableSnapshot.write(routing, VERSION_CODE, LAST_UPDATE_TIME);
+    }
+
+    private static Routing loadSnapshot(byte[] snapshot, String versionCode,
+                                        long lastUpdateTime) {
+        Routing routing = new Routing("token", RuntimeEnvironment.application, new Handling(),
+                new Filtering());
+        if (!RouteTableSnapshot.load(ByteBuffer.wrap(snapshot), versionCode, lastUpdateTime,
+                routing))
+            return null;
+        return routing;
+    }
+
+}
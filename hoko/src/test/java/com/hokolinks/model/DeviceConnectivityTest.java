@@ -0,0 +1,121 @@
+package com.hokolinks.model;
+
+import android.Manifest;
+import android.content.Context;
+import android.content.Intent;
+import android.content.pm.PackageInfo;
+import android.content.pm.PackageManager;
+import android.net.ConnectivityManager;
+import android.net.NetworkInfo;
+
+import com.hokolinks.BuildConfig;
+import com.hokolinks.tests.HokoGradleTestRunner;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.Shadows;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+import org.robolectric.shadows.ShadowNetworkInfo;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+/**
+ * Tests the cached connectivity state of the Device and how it is kept current by the network
+ * callback on Lollipop and above and by the connectivity change receiver below it.
+ * Lives in the model package to reach the package-private Device internals.
+ */
+@RunWith(HokoGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class DeviceConnectivityTest {
+
+    @Before
+    public void setUp() {
+        Device.resetConnectivity();
+    }
+
+    @Test
+    public void testConnectivityIsCached() throws PackageManager.NameNotFoundException {
+        grantNetworkStatePermission();
+        setNetworks(true, false);
+        assertThat(Device.getInternetConnectivity(RuntimeEnvironment.application))
+                .isEqualTo(Device.HokoConnectivity.WIFI);
+
+        // Not queried again until a connectivity change
+        setNetworks(false, false);
+        assertThat(Device.getInternetConnectivity(RuntimeEnvironment.application))
+                .isEqualTo(Device.HokoConnectivity.WIFI);
+        assertThat(Device.hasInternetConnectivity(RuntimeEnvironment.application)).isTrue();
+    }
+
+    @Test
+    public void testNetworkCallbackUpdatesConnectivity()
+            throws PackageManager.NameNotFoundException {
+        grantNetworkStatePermission();
+        setNetworks(true, false);
+        Device.getInternetConnectivity(RuntimeEnvironment.application);
+        Device.ConnectivityCallback connectivityCallback =
+                new Device.ConnectivityCallback(RuntimeEnvironment.application);
+
+        setNetworks(false, false);
+        connectivityCallback.onLost(null);
+        assertThat(Device.getInternetConnectivity(RuntimeEnvironment.application))
+                .isEqualTo(Device.HokoConnectivity.NO_CONNECTIVITY);
+        assertThat(Device.hasInternetConnectivity(RuntimeEnvironment.application)).isFalse();
+
+        setNetworks(false, true);
+        connectivityCallback.onAvailable(null);
+        assertThat(Device.getInternetConnectivity(RuntimeEnvironment.application))
+                .isEqualTo(Device.HokoConnectivity.CELLULAR);
+    }
+
+    @Test
+    @Config(constants = BuildConfig.class, sdk = 16)
+    public void testReceiverUpdatesConnectivity() throws PackageManager.NameNotFoundException {
+        grantNetworkStatePermission();
+        setNetworks(false, true);
+        assertThat(Device.getInternetConnectivity(RuntimeEnvironment.application))
+                .isEqualTo(Device.HokoConnectivity.CELLULAR);
+
+        setNetworks(false, false);
+        RuntimeEnvironment.application.sendBroadcast(
+                new Intent(ConnectivityManager.CONNECTIVITY_ACTION));
+        ShadowLooper.idleMainLooper();
+        assertThat(Device.getInternetConnectivity(RuntimeEnvironment.application))
+                .isEqualTo(Device.HokoConnectivity.NO_CONNECTIVITY);
+    }
+
+    @Test
+    public void testWithoutPermission() {
+        assertThat(Device.getInternetConnectivity(RuntimeEnvironment.application))
+                .isEqualTo(Device.HokoConnectivity.NO_PERMISSION);
+        // Requests are still attempted, as the connectivity can not be known
+        assertThat(Device.hasInternetConnectivity(RuntimeEnvironment.application)).isTrue();
+    }
+
+    private static void grantNetworkStatePermission()
+            throws PackageManager.NameNotFoundException {
+        PackageInfo packageInfo = RuntimeEnvironment.application.getPackageManager()
+                .getPackageInfo(RuntimeEnvironment.application.getPackageName(),
+                        PackageManager.GET_PERMISSIONS);
+        packageInfo.requestedPermissions = new String[]{Manifest.permission.ACCESS_NETWORK_STATE};
+        RuntimeEnvironment.getRobolectricPackageManager().addPackage(packageInfo);
+    }
+
+    private static void setNetworks(boolean wifi, boolean mobile) {
+        ConnectivityManager connectivityManager = (ConnectivityManager) RuntimeEnvironment
+                .application.getSystemService(Context.CONNECTIVITY_SERVICE);
+        Shadows.shadowOf(connectivityManager).setNetworkInfo(ConnectivityManager.TYPE_WIFI,
+                networkInfo(ConnectivityManager.TYPE_WIFI, wifi));
+        Shadows.shadowOf(connectivityManager).setNetworkInfo(ConnectivityManager.TYPE_MOBILE,
+                networkInfo(ConnectivityManager.TYPE_MOBILE, mobile));
+    }
+
+    private static NetworkInfo networkInfo(int type, boolean connected) {
+        return ShadowNetworkInfo.newInstance(connected ? NetworkInfo.DetailedState.CONNECTED
+                : NetworkInfo.DetailedState.DISCONNECTED, type, 0, true, connected);
+    }
+
+}
@@ -0,0 +1,126 @@
+package com.hokolinks.tests;
+
+import android.os.Bundle;
+import android.os.Parcel;
+
+import com.hokolinks.BuildConfig;
+import com.hokolinks.model.Deeplink;
+import com.hokolinks.model.DeeplinkParcel;
+import com.hokolinks.model.IntentRouteImpl;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.annotation.Config;
+
+import java.util.HashMap;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+@RunWith(HokoGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class DeeplinkParcelTest {
+
+    @Test
+    public void testParcelRoundTrip() throws JSONException {
+        Deeplink deeplink = Deeplink.deeplink("product/:product_id", new HashMap<String, String>() {
+            {
+                put("product_id", "1234");
+            }
+        }, new HashMap<String, String>() {
+            {
+                put("utm_source", "email");
+                put("coupon", "");
+            }
+        }, new JSONObject().put("campaign", "summer"));
+
+        DeeplinkParcel deeplinkParcel = unparcel(new DeeplinkParcel("product/:product_id",
+                deeplink));
+
+        assertThat(deeplinkParcel.getRoute()).isEqualTo("product/:product_id");
+        assertThat(deeplinkParcel.getRouteParameter("product_id")).isEqualTo("1234");
+        assertThat(deeplinkParcel.getQueryParameter("utm_source")).isEqualTo("email");
+        assertThat(deeplinkParcel.getQueryParameter("coupon")).isEqualTo("");
+        assertThat(deeplinkParcel.getQueryParameter("product_id")).isNull();
+        assertThat(deeplinkParcel.hasMetadata()).isTrue();
+        assertThat(deeplinkParcel.getMetadata().getString("campaign")).isEqualTo("summer");
+    }
+
+    @Test
+    public void testParcelRoundTripWithoutParameters() {
+        DeeplinkParcel deeplinkParcel = unparcel(new DeeplinkParcel("products",
+                Deeplink.deeplink("products")));
+
+        assertThat(deeplinkParcel.getRoute()).isEqualTo("products");
+        assertThat(deeplinkParcel.getRouteParameter("product_id")).isNull();
+        assertThat(deeplinkParcel.getQueryParameter("utm_source")).isNull();
+        assertThat(deeplinkParcel.hasMetadata()).isFalse();
+        assertThat(deeplinkParcel.getMetadata()).isNull();
+    }
+
+    @Test
+    public void testLegacyBundles() throws JSONException {
+        Bundle routeParameters = new Bundle();
+        routeParameters.putString("product_id", "1234");
+        Bundle queryParameters = new Bundle();
+        queryParameters.putString("utm_source", "email");
+
+        DeeplinkParcel deeplinkParcel = DeeplinkParcel.fromBundles("product/:product_id",
+                routeParameters, queryParameters, "{\"campaign\":\"summer\"}");
+
+        assertThat(deeplinkParcel.getRoute()).isEqualTo("product/:product_id");
+        assertThat(deeplinkParcel.getRouteParameter("product_id")).isEqualTo("1234");
+        assertThat(deeplinkParcel.getQueryParameter("utm_source")).isEqualTo("email");
+        assertThat(deeplinkParcel.getMetadataString()).isEqualTo("{\"campaign\":\"summer\"}");
+        assertThat(deeplinkParcel.getMetadata().getString("campaign")).isEqualTo("summer");
+
+        // Survives being parceled again in the current format
+        assertThat(unparcel(deeplinkParcel).getRouteParameter("product_id")).isEqualTo("1234");
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    public void testWritesLegacyBundles() throws JSONException {
+        Deeplink deeplink = Deeplink.deeplink("product/:product_id", new HashMap<String, String>() {
+            {
+                put("product_id", "1234");
+            }
+        }, new HashMap<String, String>() {
+            {
+                put("utm_source", "email");
+            }
+        }, new JSONObject().put("campaign", "summer"));
+
+        Bundle bundle = new Bundle();
+        new DeeplinkParcel("product/:product_id", deeplink).writeLegacyBundles(bundle);
+
+        assertThat(bundle.getBundle(IntentRouteImpl.ROUTE_PARAMETERS_BUNDLE_KEY)
+                .getString("product_id")).isEqualTo("1234");
+        assertThat(bundle.getBundle(IntentRouteImpl.QUERY_PARAMETERS_BUNDLE_KEY)
+                .getString("utm_source")).isEqualTo("email");
+        assertThat(new JSONObject(bundle.getString(IntentRouteImpl.METADATA_KEY))
+                .getString("campaign")).isEqualTo("summer");
+    }
+
+    @Test
+    public void testLegacyBundlesMissingValues() {
+        assertThat(DeeplinkParcel.fromBundles(null, new Bundle(), new Bundle(), null)).isNull();
+        assertThat(DeeplinkParcel.fromBundles("products", null, new Bundle(), null)).isNull();
+        assertThat(DeeplinkParcel.fromBundles("products", new Bundle(), null, null)).isNull();
+        assertThat(DeeplinkParcel.fromBundles("products", new Bundle(), new Bundle(), null)
+                .hasMetadata()).isFalse();
+    }
+
+    private static DeeplinkParcel unparcel(DeeplinkParcel deeplinkParcel) {
+        Parcel parcel = Parcel.obtain();
+        try {
+            deeplinkParcel.writeToParcel(parcel, 0);
+            parcel.setDataPosition(0);
+            return DeeplinkParcel.CREATOR.createFromParcel(parcel);
+        } finally {
+            parcel.recycle();
+        }
+    }
+
+}
@@ -0,0 +1,68 @@
+package com.hokolinks.tests;
+
+import com.hokolinks.BuildConfig;
+import com.hokolinks.model.Deeplink;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.annotation.Config;
+
+import java.util.HashMap;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+@RunWith(HokoGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class DeeplinkTest {
+
+    @Test
+    public void testURL() {
+        Deeplink deeplink = Deeplink.deeplink("product/:product_id/price/:price", new HashMap<String, String>() {
+            {
+                put("product_id", "1234");
+                put("price", "10");
+            }
+        });
+
+        assertThat(deeplink.getURL()).isEqualTo("product/1234/price/10");
+    }
+
+    @Test
+    public void testURLFillsParametersByPosition() {
+        Deeplink deeplink = Deeplink.deeplink("store/:id/:id_long", new HashMap<String, String>() {
+            {
+                put("id", "1");
+                put("id_long", "2");
+            }
+        });
+
+        assertThat(deeplink.getURL()).isEqualTo("store/1/2");
+    }
+
+    @Test
+    public void testURLEncoding() {
+        Deeplink deeplink = Deeplink.deeplink("search/:term", new HashMap<String, String>() {
+            {
+                put("term", "hi there/you");
+            }
+        }, new HashMap<String, String>() {
+            {
+                put("q", "a&b=c d");
+            }
+        });
+
+        assertThat(deeplink.getURL()).isEqualTo("search/hi%20there%2Fyou?q=a%26b%3Dc+d");
+    }
+
+    @Test
+    public void testURLWithoutRouteParameters() {
+        Deeplink deeplink = Deeplink.deeplink("products", null, new HashMap<String, String>() {
+            {
+                put("ref", "home");
+            }
+        });
+
+        assertThat(deeplink.getURL()).isEqualTo("products?ref=home");
+    }
+
+}
@@ -0,0 +1,179 @@
+package com.hokolinks.tests;
+
+import com.hokolinks.BuildConfig;
+import com.hokolinks.deeplinking.Filtering;
+import com.hokolinks.model.AsyncFilterCallback;
+import com.hokolinks.model.Deeplink;
+import com.hokolinks.model.FilterCallback;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.annotation.Config;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+@RunWith(HokoGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class FilteringTest {
+
+    private Boolean decision;
+
+    @Test
+    public void testSynchronousFilterShortCircuits() {
+        Filtering filtering = new Filtering();
+        filtering.addFilter(new FilterCallback() {
+            @Override
+            public boolean openDeeplink(Deeplink deeplink) {
+                return false;
+            }
+        });
+        filtering.addFilter(new AsyncFilterCallback() {
+            @Override
+            public void openDeeplink(Deeplink deeplink, FilterDecision decision) {
+                throw new IllegalStateException("Should not be called");
+            }
+        }, 1000, true);
+
+        filtering.filter(Deeplink.deeplink("product"), new AsyncFilterCallback.FilterDecision() {
+            @Override
+            public void decide(boolean openDeeplink) {
+                decision = openDeeplink;
+            }
+        });
+
+        assertThat(decision).isFalse();
+    }
+
+    @Test
+    public void testAsyncFilters() throws Exception {
+        final CountDownLatch lock = new CountDownLatch(1);
+        Filtering filtering = new Filtering();
+        filtering.setAsyncExecutor(Executors.newCachedThreadPool());
+        filtering.addFilter(new AsyncFilterCallback() {
+            @Override
+            public void openDeeplink(Deeplink deeplink, FilterDecision decision) {
+                decision.decide(true);
+            }
+        }, 1000, false);
+        filtering.addFilter(new AsyncFilterCallback() {
+            @Override
+            public void openDeeplink(Deeplink deeplink, FilterDecision decision) {
+                decision.decide(true);
+            }
+        }, 1000, false);
+
+        filtering.filter(Deeplink.deeplink("product"), new AsyncFilterCallback.FilterDecision() {
+            @Override
+            public void decide(boolean openDeeplink) {
+                decision = openDeeplink;
+                lock.countDown();
+            }
+        });
+
+        assertThat(lock.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(decision).isTrue();
+    }
+
+    @Test
+    public void testAsyncFilterTimeout() throws Exception {
+        final CountDownLatch lock = new CountDownLatch(1);
+        Filtering filtering = new Filtering();
+        filtering.setAsyncExecutor(Executors.newCachedThreadPool());
+        filtering.addFilter(new AsyncFilterCallback() {
+            @Override
+            public void openDeeplink(Deeplink deeplink, FilterDecision decision) {
+                // Never decides
+            }
+        }, 10, false);
+
+        filtering.filter(Deeplink.deeplink("product"), new AsyncFilterCallback.FilterDecision() {
+            @Override
+            public void decide(boolean openDeeplink) {
+                decision = openDeeplink;
+                lock.countDown();
+            }
+        });
+
+        assertThat(lock.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(decision).isFalse();
+    }
+
+    @Test
+    public void testAsyncRejectionDecidesBeforeSlowerFilters() throws Exception {
+        final CountDownLatch lock = new CountDownLatch(1);
+        final CountDownLatch slowFilterRelease = new CountDownLatch(1);
+        final AtomicBoolean slowFilterDecided = new AtomicBoolean();
+        final AtomicBoolean decidedBeforeSlowFilter = new AtomicBoolean();
+        Filtering filtering = new Filtering();
+        filtering.setAsyncExecutor(Executors.newCachedThreadPool());
+        filtering.addFilter(new AsyncFilterCallback() {
+            @Override
+            public void openDeeplink(Deeplink deeplink, FilterDecision decision) {
+                try {
+                    slowFilterRelease.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                slowFilterDecided.set(true);
+                decision.decide(true);
+            }
+        }, 10000, true);
+        filtering.addFilter(new AsyncFilterCallback() {
+            @Override
+            public void openDeeplink(Deeplink deeplink, FilterDecision decision) {
+                decision.decide(false);
+            }
+        }, 10000, true);
+
+        filtering.filter(Deeplink.deeplink("product"), new AsyncFilterCallback.FilterDecision() {
+            @Override
+            public void decide(boolean openDeeplink) {
+                decision = openDeeplink;
+                decidedBeforeSlowFilter.set(!slowFilterDecided.get());
+                lock.countDown();
+            }
+        });
+
+        assertThat(lock.await(5, TimeUnit.SECONDS)).isTrue();
+        slowFilterRelease.countDown();
+        assertThat(decision).isFalse();
+        assertThat(decidedBeforeSlowFilter.get()).isTrue();
+    }
+
+    @Test
+    public void testThrowingAsyncFilterTakesDefaultDecision() throws Exception {
+        assertThat(filterWithThrowingFilter(true)).isTrue();
+        assertThat(filterWithThrowingFilter(false)).isFalse();
+    }
+
+    private Boolean filterWithThrowingFilter(boolean defaultDecision) throws Exception {
+        final CountDownLatch lock = new CountDownLatch(1);
+        decision = null;
+        Filtering filtering = new Filtering();
+        filtering.setAsyncExecutor(Executors.newCachedThreadPool());
+        filtering.addFilter(new AsyncFilterCallback() {
+            @Override
+            public void openDeeplink(Deeplink deeplink, FilterDecision decision) {
+                throw new IllegalStateException("Filter failed");
+            }
+        }, 10000, defaultDecision);
+
+        filtering.filter(Deeplink.deeplink("product"), new AsyncFilterCallback.FilterDecision() {
+            @Override
+            public void decide(boolean openDeeplink) {
+                decision = openDeeplink;
+                lock.countDown();
+            }
+        });
+
+        // Decided long before the deadline
+        assertThat(lock.await(5, TimeUnit.SECONDS)).isTrue();
+        return decision;
+    }
+
+}
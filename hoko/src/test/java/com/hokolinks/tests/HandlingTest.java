@@ -13,6 +13,7 @@ import org.robolectric.annotation.Config;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
 
 import static org.fest.assertions.api.Assertions.assertThat;
 
@@ -209,6 +210,37 @@ public class HandlingTest {
 
     }
 
+    @Test
+    public void testAsynchronousHandling() throws Exception {
+
+        lock = new CountDownLatch(1);
+
+        Handling handling = new Handling();
+
+        handling.setAsyncExecutor(Executors.newSingleThreadExecutor());
+
+        TestHandler handler = new TestHandler(lock);
+
+        handling.addAsyncHandler(handler);
+
+        Deeplink openedDeeplink = Deeplink.deeplink("product/:product_id",
+                new HashMap<String, String>() {
+                    {
+                        put("product_id", "1234");
+                    }
+                }, null, null);
+
+        handling.handle(openedDeeplink);
+
+        assertThat(handler.deeplink).isNull();
+
+        handling.handleAsynchronously(openedDeeplink);
+
+        lock.await();
+
+        assertThat(handler.deeplink).isSameAs(openedDeeplink);
+    }
+
     private class TestHandler implements DeeplinkCallback {
 
         public Date timestamp;
@@ -0,0 +1,80 @@
+package com.hokolinks.tests;
+
+import com.hokolinks.BuildConfig;
+import com.hokolinks.utils.networking.async.HttpRequest;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.annotation.Config;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+@RunWith(HokoGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class HttpRequestTest {
+
+    @Test
+    public void testEndpoint() {
+        HttpRequest httpRequest = new HttpRequest(HttpRequest.HokoNetworkOperationType.POST,
+                "installs/android", "token", "{}");
+
+        assertThat(httpRequest.getEndpoint()).isEqualTo("installs/android");
+    }
+
+    @Test
+    public void testIdempotencyKey() {
+        HttpRequest httpRequest = routeRequest("product/:product_id");
+        HttpRequest duplicateRequest = routeRequest("product/:product_id");
+        HttpRequest otherRequest = routeRequest("store/:store_id");
+
+        assertThat(httpRequest.getIdempotencyKey()).startsWith("routes-");
+        assertThat(httpRequest.getIdempotencyKey()).isEqualTo(duplicateRequest.getIdempotencyKey());
+        assertThat(httpRequest.isDuplicateOf(duplicateRequest)).isTrue();
+        assertThat(httpRequest.isDuplicateOf(otherRequest)).isFalse();
+    }
+
+    @Test
+    public void testEventsAreNeverDuplicates() {
+        HttpRequest httpRequest = new HttpRequest(HttpRequest.HokoNetworkOperationType.POST,
+                "smartlinks/open", "token", "{\"deeplink\":\"hoko://product/1\"}");
+        HttpRequest identicalRequest = new HttpRequest(HttpRequest.HokoNetworkOperationType.POST,
+                "smartlinks/open", "token", "{\"deeplink\":\"hoko://product/1\"}");
+
+        assertThat(httpRequest.getIdempotencyKey()).startsWith("smartlinks/open-");
+        assertThat(httpRequest.getIdempotencyKey()).isNotEqualTo(identicalRequest.getIdempotencyKey());
+        assertThat(httpRequest.isDuplicateOf(identicalRequest)).isFalse();
+    }
+
+    @Test
+    public void testEventIdempotencyKeySurvivesRetriesAndPersistence() throws Exception {
+        HttpRequest httpRequest = new HttpRequest(HttpRequest.HokoNetworkOperationType.POST,
+                "installs/android", "token", "{}");
+        String idempotencyKey = httpRequest.getIdempotencyKey();
+
+        httpRequest.incrementNumberOfRetries();
+        assertThat(httpRequest.getIdempotencyKey()).isEqualTo(idempotencyKey);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream output = new ObjectOutputStream(bytes);
+        output.writeObject(httpRequest);
+        output.close();
+        ObjectInputStream input = new ObjectInputStream(
+                new ByteArrayInputStream(bytes.toByteArray()));
+        HttpRequest persistedRequest = (HttpRequest) input.readObject();
+        input.close();
+
+        assertThat(persistedRequest.getIdempotencyKey()).isEqualTo(idempotencyKey);
+    }
+
+    private static HttpRequest routeRequest(String route) {
+        return new HttpRequest(HttpRequest.HokoNetworkOperationType.POST, "routes", "token",
+                "{\"route\":{\"path\":\"" + route + "\"}}",
+                HttpRequest.HokoNetworkPriority.LOW, true);
+    }
+
+}
@@ -2,6 +2,7 @@ package com.hokolinks.tests;
 
 import com.hokolinks.BuildConfig;
 import com.hokolinks.Hoko;
+import com.hokolinks.deeplinking.AnnotationParser;
 import com.hokolinks.model.Device;
 import com.hokolinks.model.IntentRouteImpl;
 
@@ -12,7 +13,9 @@ import org.junit.runner.RunWith;
 import org.robolectric.RuntimeEnvironment;
 import org.robolectric.annotation.Config;
 
+import java.lang.reflect.Field;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 
 import static org.fest.assertions.api.Assertions.assertThat;
@@ -49,6 +52,54 @@ public class IntentRouteTest {
         assertThat(intentRoute.getComponents()).isEqualTo(expectedRouteComponents);
     }
 
+    @Test
+    public void testInvalidActivityClass() {
+        IntentRouteImpl intentRoute = new IntentRouteImpl("product/open", "com.hokolinks.tests.MissingActivity", null, null, null);
+        assertThat(intentRoute.isValid()).isFalse();
+    }
+
+    @Test
+    public void testLazyRoute() {
+        IntentRouteImpl intentRoute = new IntentRouteImpl("product/:product_id", "com.hokolinks.tests.MissingActivity", null);
+        assertThat(intentRoute.isResolved()).isFalse();
+        assertThat(intentRoute.isValid()).isTrue();
+
+        intentRoute.resolve(null, new HashMap<String, Field>(), null);
+        assertThat(intentRoute.isResolved()).isTrue();
+        assertThat(intentRoute.isValid()).isFalse();
+    }
+
+    @Test
+    public void testLazyRouteWithMissingActivityIsRemembered() {
+        IntentRouteImpl intentRoute = new IntentRouteImpl("product/:product_id", "com.hokolinks.tests.MissingActivity", null);
+        assertThat(AnnotationParser.resolveRoute(intentRoute)).isFalse();
+        assertThat(intentRoute.isUnresolvable()).isTrue();
+        assertThat(intentRoute.isResolved()).isFalse();
+
+        // Skipped without looking the class up again
+        assertThat(AnnotationParser.resolveRoute(intentRoute)).isFalse();
+    }
+
+    @Test
+    public void testLazyRouteWithUnboundParameterIsRemembered() {
+        IntentRouteImpl intentRoute = new IntentRouteImpl("product/:product_id", IntentRouteTest.class.getName(), null);
+        assertThat(AnnotationParser.resolveRoute(intentRoute)).isFalse();
+        assertThat(intentRoute.isUnresolvable()).isTrue();
+        assertThat(AnnotationParser.resolveRoute(intentRoute)).isFalse();
+    }
+
+    @Test
+    public void testLazyDefaultRoute() {
+        IntentRouteImpl intentRoute = new IntentRouteImpl(null, IntentRouteTest.class.getName(), null);
+        intentRoute.resolve(IntentRouteTest.class, null, new HashMap<String, Field>());
+        assertThat(intentRoute.isValid()).isTrue();
+
+        IntentRouteImpl lazyRoute = new IntentRouteImpl(null, IntentRouteTest.class.getName(), null);
+        assertThat(AnnotationParser.resolveRoute(lazyRoute)).isTrue();
+        assertThat(lazyRoute.isResolved()).isTrue();
+        assertThat(lazyRoute.isUnresolvable()).isFalse();
+    }
+
     // For CI to work for the time being, this definitely needs fixing (is only breaking on travis and not locally)
     @Test
     public void testJSON() throws Exception {
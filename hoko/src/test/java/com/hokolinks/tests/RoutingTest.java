@@ -4,7 +4,11 @@ import com.hokolinks.BuildConfig;
 import com.hokolinks.deeplinking.Filtering;
 import com.hokolinks.deeplinking.Handling;
 import com.hokolinks.deeplinking.Routing;
+import com.hokolinks.model.AsyncFilterCallback;
+import com.hokolinks.model.Deeplink;
+import com.hokolinks.model.DeeplinkCallback;
 import com.hokolinks.model.Route;
+import com.hokolinks.model.URL;
 
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -12,6 +16,13 @@ import org.robolectric.RuntimeEnvironment;
 import org.robolectric.annotation.Config;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import static org.fest.assertions.api.Assertions.assertThat;
 
@@ -39,4 +50,153 @@ public class RoutingTest {
         assertThat(routes.get(6).getRoute()).isEqualTo("product/xpto/:id");
     }
 
+    @Test
+    public void testOpenURLWithLargeRouteTable() {
+        final Deeplink[] openedDeeplink = new Deeplink[1];
+        Routing routing = new Routing("token", RuntimeEnvironment.application, new Handling(), new Filtering());
+        routing.setDispatchExecutor(new Executor() {
+            @Override
+            public void execute(Runnable runnable) {
+                runnable.run();
+            }
+        });
+        for (int index = 0; index < 1000; index++) {
+            routing.mapRoute("section" + index + "/:id", new DeeplinkCallback() {
+                @Override
+                public void deeplinkOpened(Deeplink deeplink) {
+                    openedDeeplink[0] = deeplink;
+                }
+            });
+        }
+
+        assertThat(routing.openURL("hoko://section999/42", null, false)).isTrue();
+
+        HashMap<String, String> expectedRouteParameters = new HashMap<String, String>() {
+            {
+                put("id", "42");
+            }
+        };
+
+        assertThat(openedDeeplink[0].getRoute()).isEqualTo("section999/:id");
+        assertThat(openedDeeplink[0].getRouteParameters()).isEqualTo(expectedRouteParameters);
+    }
+
+    @Test
+    public void testOpenURLWithCatchAllAndOptionalRoutes() {
+        final Deeplink[] openedDeeplink = new Deeplink[1];
+        DeeplinkCallback deeplinkCallback = new DeeplinkCallback() {
+            @Override
+            public void deeplinkOpened(Deeplink deeplink) {
+                openedDeeplink[0] = deeplink;
+            }
+        };
+        Routing routing = new Routing("token", RuntimeEnvironment.application, new Handling(), new Filtering());
+        routing.setDispatchExecutor(new Executor() {
+            @Override
+            public void execute(Runnable runnable) {
+                runnable.run();
+            }
+        });
+        routing.mapRoute("help/*rest", deeplinkCallback);
+        routing.mapRoute("help/contact", deeplinkCallback);
+        routing.mapRoute("product/:id/:tab?", deeplinkCallback);
+
+        assertThat(routing.openURL("hoko://help/contact", null, false)).isTrue();
+        assertThat(openedDeeplink[0].getRoute()).isEqualTo("help/contact");
+
+        assertThat(routing.openURL("hoko://help/billing/refunds", null, false)).isTrue();
+        assertThat(openedDeeplink[0].getRoute()).isEqualTo("help/*rest");
+        assertThat(openedDeeplink[0].getRouteParameters().get("rest")).isEqualTo("billing/refunds");
+        assertThat(openedDeeplink[0].getURL()).isEqualTo("help/billing/refunds");
+
+        assertThat(routing.openURL("hoko://help", null, false)).isTrue();
+        assertThat(openedDeeplink[0].getRoute()).isEqualTo("help/*rest");
+        assertThat(openedDeeplink[0].getRouteParameters()).isEmpty();
+
+        assertThat(routing.openURL("hoko://product/42", null, false)).isTrue();
+        assertThat(openedDeeplink[0].getRouteParameters()).isEqualTo(new HashMap<String, String>() {
+            {
+                put("id", "42");
+            }
+        });
+        assertThat(openedDeeplink[0].getURL()).isEqualTo("product/42");
+
+        assertThat(routing.openURL("hoko://product/42/reviews", null, false)).isTrue();
+        assertThat(openedDeeplink[0].getRouteParameters().get("tab")).isEqualTo("reviews");
+    }
+
+    @Test
+    public void testOpenURLWithQualifiedRoutes() {
+        final Deeplink[] openedDeeplink = new Deeplink[1];
+        DeeplinkCallback deeplinkCallback = new DeeplinkCallback() {
+            @Override
+            public void deeplinkOpened(Deeplink deeplink) {
+                openedDeeplink[0] = deeplink;
+            }
+        };
+        Routing routing = new Routing("token", RuntimeEnvironment.application, new Handling(), new Filtering());
+        routing.setDispatchExecutor(new Executor() {
+            @Override
+            public void execute(Runnable runnable) {
+                runnable.run();
+            }
+        });
+        routing.mapRoute("product/:id", deeplinkCallback);
+        routing.mapRoute("myapp://product/:id", deeplinkCallback);
+        routing.mapRoute("https://example.com/product/:id", deeplinkCallback);
+
+        assertThat(routing.openURL("hoko://product/42", null, false)).isTrue();
+        assertThat(openedDeeplink[0].getRoute()).isEqualTo("product/:id");
+
+        assertThat(routing.openURL("myapp://product/42", null, false)).isTrue();
+        assertThat(openedDeeplink[0].getRoute()).isEqualTo("myapp://product/:id");
+
+        assertThat(routing.openURL("https://example.com/product/42", null, false)).isTrue();
+        assertThat(openedDeeplink[0].getRoute()).isEqualTo("https://example.com/product/:id");
+        assertThat(openedDeeplink[0].getRouteParameters().get("id")).isEqualTo("42");
+
+        Route hostRoute = routing.getRoute("https://example.com/product/:id");
+        assertThat(hostRoute.getHost()).isEqualTo("example.com");
+        assertThat(new URL("https://example.org/product/42").match(hostRoute)).isNull();
+    }
+
+    @Test
+    public void testAsyncFilterDecisionIsDispatchedOnDispatchExecutor() throws Exception {
+        final Thread[] callbackThread = new Thread[1];
+        final CountDownLatch dispatched = new CountDownLatch(1);
+        final List<Runnable> dispatchQueue = new CopyOnWriteArrayList<>();
+        Filtering filtering = new Filtering();
+        filtering.setAsyncExecutor(Executors.newCachedThreadPool());
+        filtering.addFilter(new AsyncFilterCallback() {
+            @Override
+            public void openDeeplink(Deeplink deeplink, FilterDecision decision) {
+                decision.decide(true);
+            }
+        }, 10000, false);
+        Routing routing = new Routing("token", RuntimeEnvironment.application, new Handling(), filtering);
+        routing.setDispatchExecutor(new Executor() {
+            @Override
+            public void execute(Runnable runnable) {
+                dispatchQueue.add(runnable);
+                dispatched.countDown();
+            }
+        });
+        routing.mapRoute("product/:id", new DeeplinkCallback() {
+            @Override
+            public void deeplinkOpened(Deeplink deeplink) {
+                callbackThread[0] = Thread.currentThread();
+            }
+        });
+
+        assertThat(routing.openURL("hoko://product/42", null, false)).isTrue();
+        assertThat(dispatched.await(5, TimeUnit.SECONDS)).isTrue();
+        // Not opened on the filter's thread
+        assertThat(callbackThread[0]).isNull();
+
+        for (Runnable runnable : dispatchQueue) {
+            runnable.run();
+        }
+        assertThat(callbackThread[0]).isEqualTo(Thread.currentThread());
+    }
+
 }
@@ -3,6 +3,7 @@ package com.hokolinks.tests;
 
 import com.hokolinks.BuildConfig;
 import com.hokolinks.model.IntentRouteImpl;
+import com.hokolinks.model.RouteMatch;
 import com.hokolinks.model.URL;
 
 import org.junit.Test;
@@ -44,6 +45,73 @@ public class URLTest {
         assertThat(url.getQueryParameters()).isEqualTo(expectedQueryParameters);
     }
 
+    @Test
+    public void testQueryDecoding() {
+        URL url = new URL("hoko://param/1?name=caf%C3%A9&equation=a%2Bb%3Dc&empty&first=1&first=2#fragment");
+
+        HashMap<String, String> expectedQueryParameters = new HashMap<String, String>() {
+            {
+                put("name", "caf\u00e9");
+                put("equation", "a+b=c");
+                put("empty", "");
+                put("first", "1");
+            }
+        };
+
+        assertThat(url.getQueryParameters()).isEqualTo(expectedQueryParameters);
+    }
+
+    @Test
+    public void testRouteMatchedDecoding() {
+        IntentRouteImpl intentRoute = new IntentRouteImpl("search/:term", null, null, null, null);
+        URL url = new URL("hoko://search/hi%20there+you");
+
+        HashMap<String, String> routeParameters = url.matchesWithRoute(intentRoute);
+
+        assertThat(routeParameters).isEqualTo(new HashMap<String, String>() {
+            {
+                put("term", "hi there+you");
+            }
+        });
+    }
+
+    @Test
+    public void testRouteMatch() {
+        IntentRouteImpl intentRoute = new IntentRouteImpl("product/:product_id/price", null, null, null, null);
+
+        RouteMatch routeMatch = new URL("hoko://product/1234/price").match(intentRoute);
+
+        assertThat(routeMatch.getRoute()).isSameAs(intentRoute);
+        assertThat(routeMatch.getRouteParameters()).isEqualTo(new HashMap<String, String>() {
+            {
+                put("product_id", "1234");
+            }
+        });
+        assertThat(new URL("hoko://product/1234/stock").match(intentRoute)).isNull();
+    }
+
+    @Test
+    public void testRouteMatchConstrained() {
+        IntentRouteImpl intRoute = new IntentRouteImpl("product/:id{int}", null, null, null, null);
+        IntentRouteImpl regexRoute = new IntentRouteImpl("country/:code{[A-Z]{3}}", null, null, null, null);
+
+        assertThat(new URL("hoko://product/42").match(intRoute).getRouteParameters())
+                .isEqualTo(new HashMap<String, String>() {
+                    {
+                        put("id", "42");
+                    }
+                });
+        assertThat(new URL("hoko://product/abc").match(intRoute)).isNull();
+        assertThat(new URL("hoko://product/99999999999").match(intRoute)).isNull();
+        assertThat(new URL("hoko://country/PRT").match(regexRoute).getRouteParameters())
+                .isEqualTo(new HashMap<String, String>() {
+                    {
+                        put("code", "PRT");
+                    }
+                });
+        assertThat(new URL("hoko://country/pt").match(regexRoute)).isNull();
+    }
+
     public void testScheme() {
         URL url = new URL("hoko://param/1/other_param/2?test=1&q_param=2&string=hi+there");
         assertThat(url.getScheme()).isEqualTo("hoko");
@@ -0,0 +1,240 @@
+package com.hokolinks.utils.networking;
+
+import android.content.Context;
+import android.content.Intent;
+import android.net.ConnectivityManager;
+
+import com.hokolinks.BuildConfig;
+import com.hokolinks.tests.HokoGradleTestRunner;
+import com.hokolinks.utils.networking.async.HttpRequest;
+import com.hokolinks.utils.networking.async.HttpRequestCallback;
+
+import org.json.JSONObject;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+/**
+ * Tests the flushes of the Networking queue, the flush triggered by a connectivity change, the
+ * outcome reported to the NetworkingJobService and the NetworkingStats, performing the requests by
+ * hand instead of hitting the network. Lives in the networking package to reach the
+ * package-private Networking internals.
+ */
+@RunWith(HokoGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class NetworkingTest {
+
+    @Test
+    public void testOfflineFlushWaitsForConnectivity() {
+        QueuedExecutor executor = new QueuedExecutor();
+        TestNetworking networking = new TestNetworking(RuntimeEnvironment.application, executor);
+        RecordingFlushListener flushListener = new RecordingFlushListener(networking);
+
+        networking.addRequest(request("installs/android"));
+        networking.flush(flushListener);
+        executor.runAll();
+
+        assertThat(networking.mPerformed.size()).isEqualTo(0);
+        assertThat(networking.isWaitingForConnectivity()).isTrue();
+        // Tells the job to be rescheduled
+        assertThat(flushListener.mResults).isEqualTo(results(true));
+    }
+
+    @Test
+    public void testConnectivityChangeFlushes() {
+        QueuedExecutor executor = new QueuedExecutor();
+        TestNetworking networking = new TestNetworking(RuntimeEnvironment.application, executor);
+
+        networking.addRequest(request("installs/android"));
+        networking.addRequest(request("smartlinks/open"));
+        networking.flush(null);
+        assertThat(networking.isWaitingForConnectivity()).isTrue();
+
+        networking.mOnline = true;
+        RuntimeEnvironment.application.sendBroadcast(
+                new Intent(ConnectivityManager.CONNECTIVITY_ACTION));
+        ShadowLooper.idleMainLooper();
+        executor.runAll();
+
+        assertThat(networking.mPerformed.size()).isEqualTo(2);
+        assertThat(networking.hasPendingRequests()).isFalse();
+        assertThat(networking.isWaitingForConnectivity()).isFalse();
+        assertThat(networking.getStats().getEndpointStats().get("installs/android")
+                .getSuccessCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void testOnlineFlushFinishesJob() {
+        QueuedExecutor executor = new QueuedExecutor();
+        TestNetworking networking = new TestNetworking(RuntimeEnvironment.application, executor);
+        RecordingFlushListener flushListener = new RecordingFlushListener(networking);
+        networking.mOnline = true;
+
+        networking.addRequest(request("installs/android"));
+        networking.flush(flushListener);
+        assertThat(flushListener.mResults.size()).isEqualTo(0);
+
+        executor.runAll();
+        assertThat(networking.mPerformed.size()).isEqualTo(1);
+        assertThat(flushListener.mResults).isEqualTo(results(false));
+        assertThat(flushListener.mHeldLock).isFalse();
+    }
+
+    @Test
+    public void testFlushRequestedWhileFlushingNotifiesOnce() {
+        QueuedExecutor executor = new QueuedExecutor();
+        TestNetworking networking = new TestNetworking(RuntimeEnvironment.application, executor);
+        RecordingFlushListener flushListener = new RecordingFlushListener(networking);
+        networking.mOnline = true;
+
+        networking.addRequest(request("installs/android"));
+        networking.flush(null);
+        networking.addRequest(request("smartlinks/open"));
+        networking.flush(flushListener);
+        executor.runAll();
+        assertThat(flushListener.mResults.size()).isEqualTo(0);
+
+        // The pending flush runs once the first one finishes
+        executor.runAll();
+        assertThat(networking.mPerformed.size()).isEqualTo(2);
+        assertThat(flushListener.mResults).isEqualTo(results(false));
+    }
+
+    @Test
+    public void testStatsCountOutcomesByEndpoint() {
+        QueuedExecutor executor = new QueuedExecutor();
+        TestNetworking networking = new TestNetworking(RuntimeEnvironment.application, executor);
+        networking.mOnline = true;
+        networking.mFailingEndpoints.add("smartlinks/open");
+
+        networking.addRequest(request("installs/android"));
+        networking.addRequest(request("smartlinks/open"));
+        networking.flush(null);
+        executor.runAll();
+
+        NetworkingStats stats = networking.getStats();
+        assertThat(stats.getQueueLength()).isEqualTo(0);
+        assertThat(stats.getOldestPendingAgeMillis()).isEqualTo(0);
+        assertThat(stats.getFlushCount()).isEqualTo(1);
+        assertThat(stats.getTotalFlushDurationNanos()).isGreaterThanOrEqualTo(
+                stats.getLastFlushDurationNanos());
+        assertThat(stats.getSerializationCount()).isGreaterThan(0);
+
+        NetworkingStats.EndpointStats installStats =
+                stats.getEndpointStats().get("installs/android");
+        assertThat(installStats.getSuccessCount()).isEqualTo(1);
+        assertThat(installStats.getFailureCount()).isEqualTo(0);
+
+        // Out of retries, the failed request is dropped
+        NetworkingStats.EndpointStats openStats = stats.getEndpointStats().get("smartlinks/open");
+        assertThat(openStats.getSuccessCount()).isEqualTo(0);
+        assertThat(openStats.getFailureCount()).isEqualTo(1);
+        assertThat(openStats.getDropCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void testStatsTrackQueueAndOverflow() {
+        QueuedExecutor executor = new QueuedExecutor();
+        TestNetworking networking = new TestNetworking(RuntimeEnvironment.application, executor);
+        networking.setCapacity(2, Networking.OverflowPolicy.DROP_LOWEST_PRIORITY);
+
+        networking.addRequest(new HttpRequest(HttpRequest.HokoNetworkOperationType.POST,
+                "routes", "token", "{}", HttpRequest.HokoNetworkPriority.LOW, true));
+        networking.addRequest(request("installs/android"));
+        networking.addRequest(request("smartlinks/open"));
+
+        NetworkingStats stats = networking.getStats();
+        assertThat(stats.getQueueLength()).isEqualTo(2);
+        assertThat(stats.getOldestPendingAgeMillis()).isGreaterThanOrEqualTo(0);
+        assertThat(stats.getBytesPersisted()).isGreaterThan(0);
+        assertThat(stats.getFlushCount()).isEqualTo(0);
+        assertThat(stats.getEndpointStats().get("routes").getDropCount()).isEqualTo(1);
+        assertThat(stats.getEndpointStats().containsKey("installs/android")).isFalse();
+    }
+
+    private static HttpRequest request(String path) {
+        return new HttpRequest(HttpRequest.HokoNetworkOperationType.POST, path, "token", "{}");
+    }
+
+    private static List<Boolean> results(boolean hasPendingRequests) {
+        List<Boolean> results = new ArrayList<>();
+        results.add(hasPendingRequests);
+        return results;
+    }
+
+    private static class TestNetworking extends Networking {
+
+        private final List<HttpRequest> mPerformed = new ArrayList<>();
+        private final List<String> mFailingEndpoints = new ArrayList<>();
+        private volatile boolean mOnline;
+
+        TestNetworking(Context context, Executor executor) {
+            super(context, executor);
+        }
+
+        @Override
+        boolean hasInternetConnectivity() {
+            return mOnline;
+        }
+
+        @Override
+        Runnable toRunnable(final HttpRequest httpRequest,
+                            final HttpRequestCallback httpCallback) {
+            return new Runnable() {
+                @Override
+                public void run() {
+                    mPerformed.add(httpRequest);
+                    if (mFailingEndpoints.contains(httpRequest.getEndpoint()))
+                        httpCallback.onFailure(new IOException("Offline"));
+                    else
+                        httpCallback.onSuccess(new JSONObject());
+                }
+            };
+        }
+    }
+
+    private static class QueuedExecutor implements Executor {
+
+        private final List<Runnable> mQueue = new ArrayList<>();
+
+        @Override
+        public void execute(Runnable runnable) {
+            mQueue.add(runnable);
+        }
+
+        void runAll() {
+            List<Runnable> queue = new ArrayList<>(mQueue);
+            mQueue.clear();
+            for (Runnable runnable : queue) {
+                runnable.run();
+            }
+        }
+    }
+
+    private static class RecordingFlushListener implements Networking.FlushListener {
+
+        private final Networking mNetworking;
+        private final List<Boolean> mResults = new ArrayList<>();
+        private boolean mHeldLock;
+
+        RecordingFlushListener(Networking networking) {
+            mNetworking = networking;
+        }
+
+        @Override
+        public void onFlushed(boolean hasPendingRequests) {
+            mResults.add(hasPendingRequests);
+            mHeldLock |= Thread.holdsLock(mNetworking);
+        }
+    }
+
+}